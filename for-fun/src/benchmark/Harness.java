@@ -0,0 +1,223 @@
+package benchmark;
+
+// for timing and allocation measurement
+import java.lang.management.ManagementFactory;
+
+// for functional set-up and operations
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A small JMH-style benchmark harness, which
+ * <ul>
+ * 	<li>warms an operation up before measuring it</li>
+ * 	<li>sets up a batch of invocations, then times the whole batch at once (so set-up is left
+ * 	out, and even very quick operations take long enough to time)</li>
+ * 	<li>reports the allocation rate, like JMH's GC profiler does</li>
+ * 	<li>and prints each result as a table row, with a 99.9% confidence error from Student's t
+ * 	distribution, like JMH's</li>
+ * </ul>
+ * @author faith
+ */
+public class Harness {
+	/**
+	 * the # of warm-up iterations to run (and throw away) per benchmark
+	 */
+	private final int warmups;
+	/**
+	 * the # of measured iterations per benchmark
+	 */
+	private final int iterations;
+	/**
+	 * how long, in nanoseconds, each iteration runs for
+	 */
+	private final long iterationNanos;
+	/**
+	 * the per-thread allocation counter, or null if the JVM does not have one
+	 */
+	private final com.sun.management.ThreadMXBean allocations;
+
+	/**
+	 * somewhere to put results so that the JIT cannot throw away benchmarked work
+	 */
+	public static volatile Object sink;
+
+	/**
+	 * the format of each row in the results table
+	 */
+	private static final String ROW = "%-28s %-10s %10s %14s %12s %14s %12s%n";
+	/**
+	 * how long a batch should take at least, in nanoseconds, so the timer's own cost doesn't matter
+	 */
+	private static final long MIN_BATCH_NANOS = 100_000;
+	/**
+	 * the most invocations in a batch (each batch holds all of their states at once)
+	 */
+	private static final int MAX_BATCH = 1 << 14;
+	/**
+	 * the 99.95th percentile of Student's t distribution (for a two-sided 99.9% error),
+	 * for 1 to 30 degrees of freedom
+	 */
+	private static final double[] T_QUANTILES = {636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408,
+			5.041, 4.781, 4.587, 4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+			3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646};
+	/**
+	 * the 99.95th percentile of the normal distribution, which t approaches with more degrees of freedom
+	 */
+	private static final double Z_QUANTILE = 3.2905;
+
+	/**
+	 * the # of invocations per batch, grown while batches are too quick to time
+	 */
+	private int batch;
+
+	/**
+	 * Initializes a Harness with the default 3 warm-ups and 5 measured 1-second iterations
+	 */
+	public Harness() {
+		this(3, 5, 1000);
+	}
+
+	/**
+	 * Initializes a Harness
+	 * @param warmups the # of warm-up iterations per benchmark
+	 * @param iterations the # of measured iterations per benchmark
+	 * @param iterationMillis how long each iteration runs for, in milliseconds
+	 */
+	public Harness(int warmups, int iterations, long iterationMillis) {
+		// check for argument validity
+		if (warmups < 0 || iterations <= 0 || iterationMillis <= 0)
+			throw new IllegalArgumentException("Invalid harness settings: " + warmups
+					+ " warm-ups, " + iterations + " iterations of " + iterationMillis + "ms");
+		this.warmups = warmups;
+		this.iterations = iterations;
+		this.iterationNanos = iterationMillis * 1_000_000;
+
+		// only HotSpot-style JVMs can count allocated bytes per thread
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+			allocations = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+			allocations.setThreadAllocatedMemoryEnabled(true);
+		}
+		else allocations = null;
+	}
+
+	/**
+	 * Initializes a Harness from command-line arguments
+	 * @param args optionally the # of warm-ups, # of iterations, and iteration length (ms)
+	 * @return the Harness
+	 */
+	public static Harness fromArgs(String[] args) {
+		// use defaults for anything not given
+		int warmups = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		long millis = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+		return new Harness(warmups, iterations, millis);
+	}
+
+	/**
+	 * Prints the header of the results table
+	 */
+	public void printHeader() {
+		System.out.printf(ROW, "Benchmark", "Param", "Ops", "Avg (us/op)", "Error (us)",
+				"Alloc (B/op)", "Alloc (MB/s)");
+	}
+
+	/**
+	 * Benchmarks an operation, printing its row of results
+	 * @param <S> the type of state the operation works on
+	 * @param name the name of the benchmark
+	 * @param param the parameter this run uses
+	 * @param setUp creates fresh state before each invocation (not measured)
+	 * @param op the operation to measure
+	 */
+	public <S> void run(String name, String param, Supplier<S> setUp, Consumer<S> op) {
+		// warm up, throwing away results (but keeping the batch size it grows to)
+		batch = 1;
+		for (int i = 0; i < warmups; ++i) iterate(setUp, op);
+
+		// per-iteration averages, and overall totals
+		double[] perOp = new double[iterations];
+		long ops = 0;
+		long nanos = 0;
+		long bytes = 0;
+		// loop over each measured iteration
+		for (int i = 0; i < iterations; ++i) {
+			long[] result = iterate(setUp, op);
+			perOp[i] = (double) result[1] / result[0];
+			ops += result[0];
+			nanos += result[1];
+			bytes += result[2];
+		}
+
+		// average over all iterations, with a 99.9% confidence error like JMH prints
+		double mean = (double) nanos / ops;
+		double variance = 0;
+		for (double avg : perOp) variance += (avg - mean) * (avg - mean);
+		double error = iterations > 1
+				? tQuantile(iterations - 1) * Math.sqrt(variance / (iterations - 1) / iterations) : 0;
+
+		// allocation is only known if the JVM can count it
+		String perOpBytes = allocations == null ? "n/a" : String.format("%.1f", (double) bytes / ops);
+		String rate = allocations == null ? "n/a"
+				: String.format("%.1f", bytes / 1_048_576.0 / (nanos / 1e9));
+
+		System.out.printf(ROW, name, param, ops, String.format("%.3f", mean / 1000),
+				String.format("%.3f", error / 1000), perOpBytes, rate);
+	}
+
+	/**
+	 * Finds the t value for a two-sided 99.9% confidence interval
+	 * @param freedom the # of degrees of freedom (at least 1)
+	 * @return the 99.95th percentile of Student's t distribution
+	 */
+	static double tQuantile(int freedom) {
+		if (freedom <= T_QUANTILES.length) return T_QUANTILES[freedom - 1];
+		// past the table, the Cornish-Fisher expansion around the normal percentile is close enough
+		double z = Z_QUANTILE;
+		double z3 = z * z * z;
+		double z5 = z3 * z * z;
+		double z7 = z5 * z * z;
+		return z + (z3 + z) / (4.0 * freedom)
+				+ (5 * z5 + 16 * z3 + 3 * z) / (96.0 * freedom * freedom)
+				+ (3 * z7 + 19 * z5 + 17 * z3 - 15 * z) / (384.0 * freedom * freedom * freedom);
+	}
+
+	/**
+	 * Runs one iteration of an operation, in batches
+	 * @param <S> the type of state the operation works on
+	 * @param setUp creates fresh state before each invocation
+	 * @param op the operation to measure
+	 * @return the # of invocations, the measured nanoseconds, and the measured allocated bytes
+	 */
+	private <S> long[] iterate(Supplier<S> setUp, Consumer<S> op) {
+		long ops = 0;
+		long nanos = 0;
+		long bytes = 0;
+		long thread = Thread.currentThread().getId();
+
+		// keep invoking until enough time has been measured
+		while (nanos < iterationNanos) {
+			// set up the whole batch outside of the measurement
+			@SuppressWarnings("unchecked")
+			S[] states = (S[]) new Object[batch];
+			for (int i = 0; i < batch; ++i) states[i] = setUp.get();
+
+			long startBytes = allocations == null ? 0 : allocations.getThreadAllocatedBytes(thread);
+			long start = System.nanoTime();
+			for (int i = 0; i < batch; ++i) op.accept(states[i]);
+			long end = System.nanoTime();
+			long endBytes = allocations == null ? 0 : allocations.getThreadAllocatedBytes(thread);
+
+			// hold on to a state so that the work on them is not optimized away
+			sink = states[batch - 1];
+			ops += batch;
+			nanos += end - start;
+			bytes += endBytes - startBytes;
+
+			// a batch too quick to time well is doubled
+			if (end - start < MIN_BATCH_NANOS && batch < MAX_BATCH) batch *= 2;
+		}
+
+		return new long[] {ops, nanos, bytes};
+	}
+}
@@ -15,21 +15,17 @@ public class BlockTile extends Tile {
 	 * @param col the column this Tile is in
 	 */
 	public BlockTile(int row, int col) {
-		super(row, col);
+		super(row, col, null, Cells.BLOCK);
 	}
 	
 	/**
-	 * Always throws an InvalidPathException
+	 * Initializes a view of a BLOCK cell, which never allows a path in or out
+	 * (so setIn and setOut always throw an InvalidPathException) and is always complete
+	 * @param cells the cells which hold this Tile's state
+	 * @param cell the # of this Tile's cell
 	 */
-	public void setIn(byte side) throws InvalidPathException {
-		throw new InvalidPathException(side, this);
-	}
-	
-	/**
-	 * Always throws an InvalidPathException
-	 */
-	public void setOut(byte side) throws InvalidPathException {
-		throw new InvalidPathException(side, this);
+	BlockTile(Cells cells, int cell) {
+		super(cells, cell);
 	}
 	
 	/**
@@ -37,15 +33,18 @@ public class BlockTile extends Tile {
 	 */
 	public void setColor(Color color) {}
 	
-	public void draw(Graphics window) {
+	public void drawBackground(Graphics window) {drawBackground(window, getRow(), getCol());}
+	
+	/**
+	 * Draws the background of a BlockTile at a location
+	 * @param window the window to draw on
+	 * @param row the row of the BlockTile
+	 * @param col the column of the BlockTile
+	 */
+	static void drawBackground(Graphics window, int row, int col) {
 		// to signify how this Tile blocks all paths, draws as a black block
 		window.setColor(Color.black);
-		window.fillRect(getCol() * SIZE, getRow() * SIZE, SIZE, SIZE);
-	}
-	
-	public boolean isComplete() {
-		// always complete, since state never changes
-		return true;
+		window.fillRect(col * SIZE, row * SIZE, SIZE, SIZE);
 	}
 	
 	public boolean equals(Object other) {
@@ -0,0 +1,473 @@
+package lines;
+
+// for the palette of colors used
+import java.util.ArrayList;
+import java.util.HashMap;
+// for filling arrays
+import java.util.Arrays;
+
+// for colors of cells
+import java.awt.Color;
+
+/**
+ * The state of every cell in a Lines grid, packed into parallel arrays
+ * <ul>
+ * 	<li>what kind of Tile each cell is (PATH, END, or BLOCK)</li>
+ * 	<li>the in- and out-sides of each cell</li>
+ * 	<li>and the color of each cell, as an index into a palette of colors</li>
+ * </ul>
+ * so a cell costs a few bytes rather than a whole Tile object. The Grid, its Paths and its
+ * painter all work on cell #s; a Tile viewing a cell (see tile(int)) is only made for
+ * callers that ask for one.
+ * <br>
+ * Cells are numbered row by row, so cell = row * cols + col.
+ * @author faith
+ */
+public final class Cells {
+	/**
+	 * the # of rows of cells
+	 */
+	private final int rows;
+	/**
+	 * the # of columns of cells
+	 */
+	private final int cols;
+	/**
+	 * the kind of each cell (PATH, END, or BLOCK)
+	 */
+	private final byte[] kinds;
+	/**
+	 * the side that each cell has a path coming in, or Tile.NOT_SET
+	 */
+	private final byte[] ins;
+	/**
+	 * the side that each cell has a path going out, or Tile.NOT_SET
+	 */
+	private final byte[] outs;
+	/**
+	 * 1 + the index in palette of each cell's color (read unsigned), or 0 for no color
+	 */
+	private final short[] colors;
+	/**
+	 * the colors used by cells, in the order they were first used
+	 */
+	private final ArrayList<Color> palette;
+	/**
+	 * the index in palette of each color used
+	 */
+	private final HashMap<Color, Integer> paletteIndexes;
+	/**
+	 * the # of cells which are not complete
+	 */
+	private int incomplete;
+	/**
+	 * whether each cell changed since changes were last cleared, or null if changes aren't tracked
+	 */
+	private boolean[] isChanged;
+	/**
+	 * the cells which changed since changes were last cleared
+	 */
+	private int[] changed;
+	/**
+	 * the # of cells in changed
+	 */
+	private int changedCount;
+
+	// kinds of cells, matching the kinds of Tiles
+
+	/**
+	 * a cell that can be in the middle of a path (a PathTile)
+	 */
+	public static final byte PATH = 0;
+	/**
+	 * a cell that should be at the end of a path (an EndTile)
+	 */
+	public static final byte END = 1;
+	/**
+	 * a cell that blocks all paths (a BlockTile)
+	 */
+	public static final byte BLOCK = 2;
+
+	/**
+	 * the most colors that fit in the palette
+	 */
+	public static final int MAX_COLORS = 0xFFFF;
+
+	/**
+	 * Initializes a grid of cells, each a PATH cell with no path or color
+	 * @param rows the # of rows of cells
+	 * @param cols the # of columns of cells
+	 */
+	public Cells(int rows, int cols) {
+		// check for argument validity
+		if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Invalid grid dimensions: " + rows + "x" + cols);
+		this.rows = rows;
+		this.cols = cols;
+
+		// all arrays are one entry per cell
+		kinds = new byte[rows * cols];
+		ins = new byte[kinds.length];
+		outs = new byte[kinds.length];
+		colors = new short[kinds.length];
+		// no cell has a path (kinds and colors already start at PATH and no color)
+		Arrays.fill(ins, Tile.NOT_SET);
+		Arrays.fill(outs, Tile.NOT_SET);
+
+		palette = new ArrayList<Color>();
+		paletteIndexes = new HashMap<Color, Integer>();
+		// a PATH cell with no path is incomplete
+		incomplete = kinds.length;
+		// and changes aren't tracked until someone needs them
+		isChanged = null;
+		changed = null;
+		changedCount = 0;
+	}
+
+	/**
+	 * Gets this.rows
+	 * @return the # of rows of cells
+	 */
+	public int getRows() {return rows;}
+
+	/**
+	 * Gets this.cols
+	 * @return the # of columns of cells
+	 */
+	public int getCols() {return cols;}
+
+	/**
+	 * Gets the # of cells
+	 * @return rows * cols
+	 */
+	public int size() {return kinds.length;}
+
+	/**
+	 * Checks if a location is in this grid of cells
+	 * @param row the row of the location
+	 * @param col the column of the location
+	 * @return whether the location is valid
+	 */
+	public boolean isValid(int row, int col) {
+		return row < rows && col < cols && row >= 0 && col >= 0;
+	}
+
+	/**
+	 * Gets the cell at a location
+	 * @param row the row of the cell
+	 * @param col the column of the cell
+	 * @return the # of that cell
+	 */
+	public int index(int row, int col) {return row * cols + col;}
+
+	/**
+	 * Gets the row of a cell
+	 * @param cell the # of the cell
+	 * @return the row it is in
+	 */
+	public int getRow(int cell) {return cell / cols;}
+
+	/**
+	 * Gets the column of a cell
+	 * @param cell the # of the cell
+	 * @return the column it is in
+	 */
+	public int getCol(int cell) {return cell % cols;}
+
+	/**
+	 * Finds the neighbors of a cell (the cells sharing a side with it)
+	 * @param cell the # of the cell
+	 * @param neighbors where to put the neighbors, at least 4 long
+	 * @return the # of neighbors (the first entries of neighbors)
+	 */
+	public int neighborsOf(int cell, int[] neighbors) {
+		int row = cell / cols;
+		int col = cell % cols;
+		int count = 0;
+		if (row > 0) neighbors[count++] = cell - cols;
+		if (row < rows - 1) neighbors[count++] = cell + cols;
+		if (col > 0) neighbors[count++] = cell - 1;
+		if (col < cols - 1) neighbors[count++] = cell + 1;
+		return count;
+	}
+
+	/**
+	 * Gets the kind of a cell
+	 * @param cell the # of the cell
+	 * @return PATH, END, or BLOCK
+	 */
+	public byte getKind(int cell) {return kinds[cell];}
+
+	/**
+	 * Changes the kind of a cell
+	 * @param cell the # of the cell
+	 * @param kind PATH, END, or BLOCK
+	 */
+	public void setKind(int cell, byte kind) {
+		if (kind != PATH && kind != END && kind != BLOCK)
+			throw new IllegalArgumentException("Invalid cell kind #" + kind);
+		boolean wasComplete = isComplete(cell);
+		kinds[cell] = kind;
+		completionChanged(cell, wasComplete);
+		markChanged(cell);
+	}
+
+	/**
+	 * Gets the in-side of a cell
+	 * @param cell the # of the cell
+	 * @return the side which a path enters the cell, or Tile.NOT_SET
+	 */
+	public byte getIn(int cell) {return ins[cell];}
+
+	/**
+	 * Gets the out-side of a cell
+	 * @param cell the # of the cell
+	 * @return the side which a path exits the cell, or Tile.NOT_SET
+	 */
+	public byte getOut(int cell) {return outs[cell];}
+
+	/**
+	 * Sets the in-side of a cell, without checking if it can be set (see canSetIn)
+	 * @param cell the # of the cell
+	 * @param side the side a path enters the cell, or Tile.NOT_SET
+	 */
+	public void setIn(int cell, byte side) {
+		boolean wasComplete = isComplete(cell);
+		ins[cell] = side;
+		completionChanged(cell, wasComplete);
+		markChanged(cell);
+	}
+
+	/**
+	 * Sets the out-side of a cell, without checking if it can be set (see canSetOut)
+	 * @param cell the # of the cell
+	 * @param side the side a path exits the cell, or Tile.NOT_SET
+	 */
+	public void setOut(int cell, byte side) {
+		boolean wasComplete = isComplete(cell);
+		outs[cell] = side;
+		completionChanged(cell, wasComplete);
+		markChanged(cell);
+	}
+
+	/**
+	 * Swaps the in- and out-sides of a cell, for when the path through it is reversed
+	 * @param cell the # of the cell
+	 */
+	public void reverse(int cell) {
+		boolean wasComplete = isComplete(cell);
+		byte side = ins[cell];
+		ins[cell] = outs[cell];
+		outs[cell] = side;
+		completionChanged(cell, wasComplete);
+		markChanged(cell);
+	}
+
+	/**
+	 * Clears the path through a cell, and its color (END and BLOCK cells keep theirs)
+	 * @param cell the # of the cell
+	 */
+	public void clear(int cell) {
+		setIn(cell, Tile.NOT_SET);
+		setOut(cell, Tile.NOT_SET);
+		if (kinds[cell] == PATH) setColor(cell, null);
+	}
+
+	/**
+	 * Checks if a path could enter a cell
+	 * @param cell the # of the cell
+	 * @param side the side a path would enter the cell
+	 * @return whether the cell is free to take a path in
+	 */
+	public boolean canSetIn(int cell, byte side) {return canSetIn(kinds[cell], ins[cell], outs[cell]);}
+
+	/**
+	 * Checks if a path could exit a cell
+	 * @param cell the # of the cell
+	 * @param side the side a path would exit the cell
+	 * @return whether the cell is free to let a path out
+	 */
+	public boolean canSetOut(int cell, byte side) {return canSetOut(kinds[cell], ins[cell], outs[cell]);}
+
+	/**
+	 * Checks if a cell is in a win-state
+	 * @param cell the # of the cell
+	 * @return whether the cell requires a state change to be finished
+	 */
+	public boolean isComplete(int cell) {return isComplete(kinds[cell], ins[cell], outs[cell]);}
+
+	/**
+	 * Checks if a path could enter a cell of some kind and sides (a cell here, or a Tile)
+	 * @param kind PATH, END, or BLOCK
+	 * @param in the side a path enters the cell, or Tile.NOT_SET
+	 * @param out the side a path exits the cell, or Tile.NOT_SET
+	 * @return whether the cell is free to take a path in
+	 */
+	static boolean canSetIn(byte kind, byte in, byte out) {
+		// nothing goes into a BLOCK, and an END can have only one of in or out
+		if (kind == BLOCK) return false;
+		if (kind == END && out != Tile.NOT_SET) return false;
+		return in == Tile.NOT_SET;
+	}
+
+	/**
+	 * Checks if a path could exit a cell of some kind and sides (a cell here, or a Tile)
+	 * @param kind PATH, END, or BLOCK
+	 * @param in the side a path enters the cell, or Tile.NOT_SET
+	 * @param out the side a path exits the cell, or Tile.NOT_SET
+	 * @return whether the cell is free to let a path out
+	 */
+	static boolean canSetOut(byte kind, byte in, byte out) {
+		// nothing comes out of a BLOCK, and an END can have only one of in or out
+		if (kind == BLOCK) return false;
+		if (kind == END && in != Tile.NOT_SET) return false;
+		return out == Tile.NOT_SET;
+	}
+
+	/**
+	 * Checks if a cell of some kind and sides (a cell here, or a Tile) is in a win-state
+	 * @param kind PATH, END, or BLOCK
+	 * @param in the side a path enters the cell, or Tile.NOT_SET
+	 * @param out the side a path exits the cell, or Tile.NOT_SET
+	 * @return whether the cell requires a state change to be finished
+	 */
+	static boolean isComplete(byte kind, byte in, byte out) {
+		// a PATH needs a path through, an END needs a path in or out, and a BLOCK never changes
+		if (kind == PATH) return in != Tile.NOT_SET && out != Tile.NOT_SET;
+		else if (kind == END) return in != Tile.NOT_SET || out != Tile.NOT_SET;
+		else return true;
+	}
+
+	/**
+	 * Finds the side of one cell which another cell is on
+	 * @param from the # of the cell a path would exit
+	 * @param to the # of the cell it would enter
+	 * @return the side of from connecting them, or Tile.NOT_SET if they are not neighbors
+	 */
+	public byte sideBetween(int from, int to) {
+		if (to == from - cols) return Tile.UP;
+		if (to == from + cols) return Tile.DOWN;
+		// left and right neighbors must also be in the same row
+		if (to == from - 1 && from % cols != 0) return Tile.LEFT;
+		if (to == from + 1 && to % cols != 0) return Tile.RIGHT;
+		return Tile.NOT_SET;
+	}
+
+	/**
+	 * Checks if every cell is complete
+	 * @return whether the whole grid is in a win-state
+	 */
+	public boolean isComplete() {return incomplete == 0;}
+
+	/**
+	 * Keeps the count of incomplete cells up to date after a cell changes
+	 * @param cell the # of the cell that changed
+	 * @param wasComplete whether it was complete before the change
+	 */
+	private void completionChanged(int cell, boolean wasComplete) {
+		boolean complete = isComplete(cell);
+		if (complete && !wasComplete) --incomplete;
+		else if (!complete && wasComplete) ++incomplete;
+	}
+
+	/**
+	 * Starts keeping a list of the cells which change (of kind, sides, or color),
+	 * so something drawing the cells only has to redraw those
+	 */
+	void trackChanges() {
+		if (isChanged == null) {
+			isChanged = new boolean[kinds.length];
+			changed = new int[16];
+		}
+	}
+
+	/**
+	 * Adds a cell to the list of changed cells, if changes are tracked and it isn't on it already
+	 * @param cell the # of the cell
+	 */
+	private void markChanged(int cell) {
+		if (isChanged == null || isChanged[cell]) return;
+		isChanged[cell] = true;
+		if (changedCount == changed.length) changed = Arrays.copyOf(changed, changedCount * 2);
+		changed[changedCount++] = cell;
+	}
+
+	/**
+	 * Gets the # of cells which changed since changes were last cleared
+	 * @return the # of changed cells (0 if changes aren't tracked)
+	 */
+	int getChangedCount() {return changedCount;}
+
+	/**
+	 * Gets a cell which changed since changes were last cleared
+	 * @param index which of the changed cells, under getChangedCount
+	 * @return the # of the cell
+	 */
+	int getChanged(int index) {return changed[index];}
+
+	/**
+	 * Empties the list of changed cells
+	 */
+	void clearChanges() {
+		for (int i = 0; i < changedCount; ++i) isChanged[changed[i]] = false;
+		changedCount = 0;
+	}
+
+	/**
+	 * Gets the palette index of a cell's color
+	 * @param cell the # of the cell
+	 * @return the index in the palette, or -1 if the cell has no color
+	 */
+	public int getColorIndex(int cell) {return (colors[cell] & 0xFFFF) - 1;}
+
+	/**
+	 * Gets the color of a cell
+	 * @param cell the # of the cell
+	 * @return the color of the path through the cell, or null
+	 */
+	public Color getColor(int cell) {
+		int index = getColorIndex(cell);
+		return index < 0 ? null : palette.get(index);
+	}
+
+	/**
+	 * Sets the color of a cell
+	 * @param cell the # of the cell
+	 * @param color the color of the path through the cell, or null for none
+	 */
+	public void setColor(int cell, Color color) {
+		colors[cell] = (short) (color == null ? 0 : paletteIndex(color) + 1);
+		markChanged(cell);
+	}
+
+	/**
+	 * Gets the index of a color in the palette, adding it if it is not there yet
+	 * @param color the color to look up
+	 * @return its index in the palette
+	 */
+	public int paletteIndex(Color color) {
+		Integer index = paletteIndexes.get(color);
+		if (index == null) {
+			if (palette.size() == MAX_COLORS)
+				throw new IllegalStateException("Cannot use more than " + MAX_COLORS + " colors");
+			index = palette.size();
+			palette.add(color);
+			paletteIndexes.put(color, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Makes a Tile which views a cell (and changes it, when it is changed)
+	 * <br>
+	 * A new view is made each time, so it is meant to be used and dropped, not kept
+	 * (it stays the kind of Tile the cell was when it was made)
+	 * @param cell the # of the cell
+	 * @return a PathTile, EndTile, or BlockTile depending on the kind of the cell
+	 */
+	public Tile tile(int cell) {
+		if (kinds[cell] == END) return new EndTile(this, cell);
+		else if (kinds[cell] == BLOCK) return new BlockTile(this, cell);
+		else return new PathTile(this, cell);
+	}
+}
@@ -16,7 +16,17 @@ public class EndTile extends Tile {
 	 * @param color the color of this Tile
 	 */
 	public EndTile(int row, int col, Color color) {
-		super(row, col, color);
+		super(row, col, color, Cells.END);
+	}
+	
+	/**
+	 * Initializes a view of an END cell, which can only have one of in or out
+	 * (and is complete with either)
+	 * @param cells the cells which hold this Tile's state
+	 * @param cell the # of this Tile's cell
+	 */
+	EndTile(Cells cells, int cell) {
+		super(cells, cell);
 	}
 	
 	/**
@@ -24,36 +34,26 @@ public class EndTile extends Tile {
 	 */
 	public void setColor(Color color) {}
 	
-	public void setIn(byte side) throws InvalidPathException {
-		// can only have in or out, so throw exception if out exists
-		if (hasOut()) throw new InvalidPathException(side, this);
-		// otherwise just run method as per usual
-		else super.setIn(side);
-	}
+	public void drawBackground(Graphics window) {drawBackground(window, getRow(), getCol(), getColor());}
 	
-	public void setOut(byte side) throws InvalidPathException {
-		// can only have in or out, so throw exception if in exists
-		if (hasIn()) throw new InvalidPathException(this, side);
-		// otherwise just run method as per usual
-		else super.setOut(side);
-	}
-	
-	public void draw(Graphics window) {
+	/**
+	 * Draws the background of an EndTile at a location
+	 * @param window the window to draw on
+	 * @param row the row of the EndTile
+	 * @param col the column of the EndTile
+	 * @param color the color of the EndTile
+	 */
+	static void drawBackground(Graphics window, int row, int col, Color color) {
 		// draw per usual
-		super.draw(window);
+		Tile.drawBackground(window, row, col);
 		// save a third-length for easy use
 		int third = SIZE / 3;
-		// draw a circle with diameter 1/3 side in the center
-		window.setColor(getColor());
-		window.fillOval(getCol() * SIZE + third, getRow() * SIZE + third, 
+		// draw a circle with diameter 1/3 side in the center (the path through is the same color)
+		window.setColor(color);
+		window.fillOval(col * SIZE + third, row * SIZE + third, 
 				third, third);
 	}
 	
-	public boolean isComplete() {
-		// requires either an out or an in
-		return hasOut() || hasIn();
-	}
-	
 	public boolean equals(Object other) {
 		// check for self-ness and null-ness
 		if (other == this) return true;
@@ -0,0 +1,542 @@
+package lines;
+
+// for writing generated levels to a file
+import java.io.File;
+import java.io.IOException;
+
+// for filling arrays
+import java.util.Arrays;
+// for seedable random numbers that can be split between threads
+import java.util.SplittableRandom;
+// for generating many Levels at once
+import java.util.stream.IntStream;
+
+/**
+ * Generates random Levels of Lines which are always solvable, by
+ * <ul>
+ * 	<li>starting with every cell as its own 1-cell path</li>
+ * 	<li>randomly joining the ends of neighboring paths, until the paths of more than 1 cell
+ * 	are the right # of end-point sets (and every cell that can be is on one of them)</li>
+ * 	<li>if joining gets stuck, moving ends around by cutting paths they run into and taking
+ * 	part of them, joining any ends that then meet</li>
+ * 	<li>never joining two paths that would touch anywhere except where they join,
+ * 	so no path runs alongside itself (which would leave other ways to solve it)</li>
+ * 	<li>and turning the ends of each path into end-points, and any 1-cell paths into blocks</li>
+ * </ul>
+ * The paths are themselves a solution, so no solver needs to run on what is generated.
+ * <br>
+ * The same seed always generates the same Levels, even when generating in parallel.
+ * @author faith
+ */
+public class Generator {
+	/**
+	 * the # of rows in generated Levels
+	 */
+	private final int rows;
+	/**
+	 * the # of columns in generated Levels
+	 */
+	private final int cols;
+	/**
+	 * the # of end-point sets in generated Levels (not counting blocks, for any 1-cell paths)
+	 */
+	private final int colors;
+
+	/**
+	 * the most times to go over every cell looking for paths to join
+	 */
+	private static final int MAX_PASSES = 64;
+	/**
+	 * the most times to try moving an end, per cell, once no more paths can be joined
+	 */
+	private static final int MAX_REPAIRS = 1024;
+	/**
+	 * the most times to start over from scratch, if the paths couldn't be joined into the # of colors
+	 * (which happens most when there are nearly as many colors as fit)
+	 */
+	private static final int MAX_ATTEMPTS = 16;
+	/**
+	 * the longest paths can be on average, on big boards (longer paths usually can't be
+	 * joined without touching themselves)
+	 */
+	private static final int MAX_LENGTH = 32;
+
+	/**
+	 * Initializes a Generator
+	 * @param rows the # of rows in generated Levels
+	 * @param cols the # of columns in generated Levels
+	 * @param colors the # of end-point sets in generated Levels, at least fewestColors
+	 * and at most half the # of cells (each set needs 2 cells)
+	 */
+	public Generator(int rows, int cols, int colors) {
+		// check for argument validity
+		if (rows <= 0 || cols <= 0 || (long) rows * cols < 2 || (long) rows * cols > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Invalid grid dimensions: " + rows + "x" + cols);
+		if (colors <= 0 || colors > Cells.MAX_COLORS)
+			throw new IllegalArgumentException("Can't generate " + colors + " colors");
+		if (colors > rows * cols / 2)
+			throw new IllegalArgumentException("Can't generate more than " + rows * cols / 2
+					+ " colors on a " + rows + "x" + cols + " grid");
+		if (colors < fewestColors(rows, cols))
+			throw new IllegalArgumentException("Can't generate fewer than " + fewestColors(rows, cols)
+					+ " colors on a " + rows + "x" + cols + " grid");
+		this.rows = rows;
+		this.cols = cols;
+		this.colors = colors;
+	}
+
+	/**
+	 * Finds the fewest colors a Generator can reliably join a grid into
+	 * <br>
+	 * Paths can't be much longer on average than the grid is wide, or than MAX_LENGTH,
+	 * before they can't be joined any more without touching themselves
+	 * @param rows the # of rows in the grid
+	 * @param cols the # of columns in the grid
+	 * @return the fewest colors to generate
+	 */
+	public static int fewestColors(int rows, int cols) {
+		int length = Math.max(2, Math.min((rows + cols) / 2, MAX_LENGTH));
+		return (int) (((long) rows * cols + length - 1) / length);
+	}
+
+	/**
+	 * Generates many Levels, in parallel
+	 * @param count the # of Levels to generate
+	 * @param seed the seed to generate from
+	 * @return the Levels, always the same for the same seed
+	 */
+	public Level[] generate(int count, long seed) {
+		// give each Level its own seed up front, so the order they are generated in doesn't matter
+		SplittableRandom random = new SplittableRandom(seed);
+		long[] seeds = new long[count];
+		for (int i = 0; i < count; ++i) seeds[i] = random.nextLong();
+
+		return IntStream.range(0, count).parallel()
+				.mapToObj(i -> generate(seeds[i]))
+				.toArray(Level[]::new);
+	}
+
+	/**
+	 * Generates a Level
+	 * @param seed the seed to generate from
+	 * @return the Level, always the same for the same seed (with exactly colors end-point sets)
+	 * @throws IllegalStateException if the paths couldn't be joined into the # of colors
+	 * in MAX_ATTEMPTS tries
+	 */
+	public Level generate(long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		int got = 0;
+		for (int attempt = 0; attempt < MAX_ATTEMPTS; ++attempt) {
+			Partition partition = new Partition(random);
+			partition.joinPaths();
+			partition.repairPaths();
+			// only a Level with exactly the right # of end-point sets is returned
+			if (partition.sets() == colors) return partition.toLevel();
+			got = partition.sets();
+		}
+		throw new IllegalStateException("Couldn't join " + rows + "x" + cols + " grid into "
+				+ colors + " colors from seed " + seed + " (got " + got + ")");
+	}
+
+	/**
+	 * A grid of cells split into paths, as it is being generated
+	 * @author faith
+	 */
+	private class Partition {
+		/**
+		 * where to get random numbers from
+		 */
+		private final SplittableRandom random;
+		/**
+		 * for each cell, the cell at the other end of its path (itself for 1-cell paths),
+		 * or -1 if it is in the middle of its path
+		 */
+		private final int[] other;
+		/**
+		 * the path each cell is on (named by a cell that was on it once)
+		 */
+		private final int[] path;
+		/**
+		 * the cells each cell is joined to on its path (at cell * 2 and cell * 2 + 1),
+		 * with -1 for none (only ever in the second place, if the first is filled)
+		 */
+		private final int[] links;
+		/**
+		 * the # of cells on each path
+		 */
+		private final int[] length;
+		/**
+		 * the # of paths
+		 */
+		private int paths;
+		/**
+		 * the # of 1-cell paths (so paths - singles is the # of end-point sets)
+		 */
+		private int singles;
+		/**
+		 * somewhere to put the neighbors of a cell
+		 */
+		private final int[] around;
+
+		/**
+		 * Initializes a Partition with every cell as its own 1-cell path
+		 * @param random where to get random numbers from
+		 */
+		private Partition(SplittableRandom random) {
+			this.random = random;
+			int cells = rows * cols;
+			other = new int[cells];
+			path = new int[cells];
+			links = new int[cells * 2];
+			length = new int[cells];
+			for (int cell = 0; cell < cells; ++cell) {
+				other[cell] = cell;
+				path[cell] = cell;
+				length[cell] = 1;
+			}
+			Arrays.fill(links, -1);
+			paths = cells;
+			singles = cells;
+			around = new int[4];
+		}
+
+		/**
+		 * Gets the # of end-point sets the paths make
+		 * @return the # of paths of more than 1 cell
+		 */
+		private int sets() {return paths - singles;}
+
+		/**
+		 * Checks if the paths are done: the right # of sets, and no 1-cell paths left to join onto them
+		 * @return whether no more joining is wanted
+		 */
+		private boolean isDone() {return sets() == colors && singles == 0;}
+
+		/**
+		 * Checks if joining two paths keeps the # of sets heading toward colors
+		 * @param end the end of one path
+		 * @param next the end of the other path, next to end
+		 * @return whether the join is wanted
+		 */
+		private boolean wantsJoin(int end, int next) {
+			boolean endSingle = other[end] == end;
+			boolean nextSingle = other[next] == next;
+			// two 1-cell paths make a new set, which is always wanted (extra sets are joined later)
+			if (endSingle && nextSingle) return true;
+			// a 1-cell path joined onto a set leaves the # of sets alone, but not while more sets are needed
+			if (endSingle || nextSingle) return sets() >= colors;
+			// and two sets make one, only while there are too many
+			return sets() > colors;
+		}
+
+		/**
+		 * Randomly joins the ends of neighboring paths until there are the right # of sets
+		 * with no 1-cell paths left, or no more can be joined
+		 */
+		private void joinPaths() {
+			// the order to visit cells in, shuffled each pass
+			int[] order = new int[other.length];
+			for (int cell = 0; cell < order.length; ++cell) order[cell] = cell;
+			// the neighbors of a cell, in a random order
+			int[] neighbors = new int[4];
+
+			boolean joined = true;
+			// keep going over the cells until the paths are done, while joins are still happening
+			for (int pass = 0; pass < MAX_PASSES && !isDone() && joined; ++pass) {
+				joined = false;
+				shuffle(order, order.length, random);
+
+				for (int i = 0; i < order.length && !isDone(); ++i) {
+					int end = order[i];
+					// only the ends of paths can be joined
+					if (other[end] < 0) continue;
+
+					int count = neighborsOf(end, neighbors);
+					shuffle(neighbors, count, random);
+					for (int n = 0; n < count; ++n) {
+						int next = neighbors[n];
+						// join to the end of another path, if the two paths wouldn't touch anywhere else
+						if (other[next] >= 0 && path[next] != path[end] && wantsJoin(end, next)
+								&& !wouldTouch(end, next)) {
+							join(end, next);
+							joined = true;
+							break;
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * Moves the ends of paths around until there are the right # of sets, joining any
+		 * ends that meet, or until it has tried MAX_REPAIRS times per cell
+		 * (any 1-cell paths still left over become blocks)
+		 * <br>
+		 * Where an end is next to the middle of another path, that path is cut there and
+		 * the part on one side is taken onto the end, which leaves a new end where it was cut
+		 */
+		private void repairPaths() {
+			// the neighbors of a cell, in a random order
+			int[] neighbors = new int[4];
+
+			for (long tries = (long) MAX_REPAIRS * other.length; tries > 0 && sets() != colors; --tries) {
+				// only the ends of paths can grow
+				int end = random.nextInt(other.length);
+				if (other[end] < 0) continue;
+
+				int count = neighborsOf(end, neighbors);
+				shuffle(neighbors, count, random);
+				for (int n = 0; n < count; ++n) {
+					int next = neighbors[n];
+					if (path[next] == path[end]) continue;
+					// join to the end of another path, as when joining paths
+					if (other[next] >= 0) {
+						if (!wantsJoin(end, next) || wouldTouch(end, next)) continue;
+						join(end, next);
+						break;
+					}
+					// or take part of another path, from a random side of where it's cut
+					if (take(end, next, links[next * 2 + random.nextInt(2)])) break;
+				}
+			}
+		}
+
+		/**
+		 * Checks if two paths would touch anywhere besides where they are joined
+		 * @param end the end of one path
+		 * @param next the end of the other path, next to end
+		 * @return whether any cell of one path is next to a cell of the other, besides end and next
+		 */
+		private boolean wouldTouch(int end, int next) {
+			// check around the shorter path's cells
+			int shorter = length[path[end]] <= length[path[next]] ? end : next;
+			int longer = shorter == end ? path[next] : path[end];
+
+			for (int cell = shorter, from = -1; cell >= 0; ) {
+				int count = neighborsOf(cell, around);
+				for (int n = 0; n < count; ++n) {
+					// next to the other path, and not the joining pair
+					if (path[around[n]] == longer && !(cell == end && around[n] == next)
+							&& !(cell == next && around[n] == end)) return true;
+				}
+				int step = step(cell, from);
+				from = cell;
+				cell = step;
+			}
+
+			return false;
+		}
+
+		/**
+		 * Joins the ends of two paths
+		 * @param end the end of one path
+		 * @param next the end of the other path, next to end
+		 */
+		private void join(int end, int next) {
+			// the far ends of the two paths are now each other's other end
+			int endOther = other[end];
+			int nextOther = other[next];
+			if (endOther == end) --singles;
+			if (nextOther == next) --singles;
+			// unless they were 1-cell paths, the joined ends are now in the middle
+			if (endOther != end) other[end] = -1;
+			if (nextOther != next) other[next] = -1;
+			other[endOther] = nextOther;
+			other[nextOther] = endOther;
+
+			// relabel the shorter path's cells as the longer path's (walking it from its end)
+			int shorter = length[path[end]] <= length[path[next]] ? end : next;
+			int longer = shorter == end ? next : end;
+			int from = path[shorter];
+			int into = path[longer];
+			relabel(shorter, -1, into);
+			length[into] += length[from];
+
+			link(end, next);
+			--paths;
+		}
+
+		/**
+		 * Cuts another path where it passes next to an end, and joins the part on one side onto the end,
+		 * if the joined path wouldn't touch itself (the number of paths stays the same)
+		 * @param end the end of a path
+		 * @param cell a cell in the middle of another path, next to end
+		 * @param keep the cell joined to cell on the side to take
+		 * @return whether the part was taken
+		 */
+		private boolean take(int end, int cell, int keep) {
+			int cut = links[cell * 2] == keep ? links[cell * 2 + 1] : links[cell * 2];
+			int into = path[end];
+
+			// walk the part to take, checking that it only touches end's path at end
+			int far = cell;
+			int size = 0;
+			for (int cur = cell, from = cut; cur >= 0; ) {
+				int count = neighborsOf(cur, around);
+				for (int n = 0; n < count; ++n)
+					if (path[around[n]] == into && !(cur == cell && around[n] == end)) return false;
+				far = cur;
+				++size;
+				int step = step(cur, from);
+				from = cur;
+				cur = step;
+			}
+
+			// the far ends of each path change: end's path now ends at far,
+			// and what is left of the other path ends where it was cut
+			int endOther = other[end];
+			int rest = other[far];
+			// a 1-cell end grows into a set, and a cut leaving 1 cell behind makes a 1-cell path
+			if (endOther == end) --singles;
+			if (rest == cut) ++singles;
+			if (endOther != end) other[end] = -1;
+			other[endOther] = far;
+			other[far] = endOther;
+			other[cut] = rest;
+			other[rest] = cut;
+
+			// move the part from one path to the other
+			length[path[cell]] -= size;
+			length[into] += size;
+			relabel(cell, cut, into);
+			unlink(cell, cut);
+			unlink(cut, cell);
+			link(end, cell);
+			return true;
+		}
+
+		/**
+		 * Relabels the cells of a path, from a cell to the end away from another
+		 * @param cell the first cell to relabel
+		 * @param from the cell joined to it on the side not to relabel, or -1 if cell is an end
+		 * @param label the path to label the cells as being on
+		 */
+		private void relabel(int cell, int from, int label) {
+			while (cell >= 0) {
+				path[cell] = label;
+				int step = step(cell, from);
+				from = cell;
+				cell = step;
+			}
+		}
+
+		/**
+		 * Steps along a path
+		 * @param cell the cell to step from
+		 * @param from the cell joined to it that was just stepped from, or -1
+		 * @return the other cell joined to cell, or -1 if cell is an end
+		 */
+		private int step(int cell, int from) {
+			return links[cell * 2] != from ? links[cell * 2] : links[cell * 2 + 1];
+		}
+
+		/**
+		 * Joins two neighboring cells on a path
+		 * @param one a cell with at most 1 cell joined to it
+		 * @param two another cell with at most 1 cell joined to it
+		 */
+		private void link(int one, int two) {
+			links[links[one * 2] < 0 ? one * 2 : one * 2 + 1] = two;
+			links[links[two * 2] < 0 ? two * 2 : two * 2 + 1] = one;
+		}
+
+		/**
+		 * Stops one cell being joined to another (not the other way around)
+		 * @param cell the cell to change
+		 * @param joined a cell joined to it
+		 */
+		private void unlink(int cell, int joined) {
+			// keep the first place filled, if either is
+			if (links[cell * 2] == joined) links[cell * 2] = links[cell * 2 + 1];
+			links[cell * 2 + 1] = -1;
+		}
+
+		/**
+		 * Turns the ends of the paths into a Level
+		 * @return the Level, with an end-point set for each path and a block for each 1-cell path
+		 */
+		private Level toLevel() {
+			// count the sets and blocks
+			int numSets = 0;
+			int numBlocks = 0;
+			for (int cell = 0; cell < other.length; ++cell) {
+				if (other[cell] == cell) ++numBlocks;
+				else if (other[cell] > cell) ++numSets;
+			}
+
+			int[][] sets = new int[numSets][];
+			int[][] blocks = new int[numBlocks][];
+			numSets = 0;
+			numBlocks = 0;
+			for (int cell = 0; cell < other.length; ++cell) {
+				// a 1-cell path can't be a path, so it is a block
+				if (other[cell] == cell) blocks[numBlocks++] = new int[] {cell / cols, cell % cols};
+				// add each path once, from its lower-numbered end
+				else if (other[cell] > cell)
+					sets[numSets++] = new int[] {cell / cols, cell % cols, other[cell] / cols, other[cell] % cols};
+			}
+
+			return new Level(rows, cols, sets, blocks);
+		}
+	}
+
+	/**
+	 * Finds the neighbors of a cell
+	 * @param cell the cell
+	 * @param neighbors where to put the neighbors
+	 * @return the # of neighbors (the first entries of neighbors)
+	 */
+	private int neighborsOf(int cell, int[] neighbors) {
+		int row = cell / cols;
+		int col = cell % cols;
+		int count = 0;
+		if (row > 0) neighbors[count++] = cell - cols;
+		if (row < rows - 1) neighbors[count++] = cell + cols;
+		if (col > 0) neighbors[count++] = cell - 1;
+		if (col < cols - 1) neighbors[count++] = cell + 1;
+		return count;
+	}
+
+	/**
+	 * Shuffles the start of an array
+	 * @param values the array to shuffle
+	 * @param count the # of entries to shuffle
+	 * @param random where to get random numbers from
+	 */
+	private static void shuffle(int[] values, int count, SplittableRandom random) {
+		// Fisher-Yates shuffle
+		for (int i = count - 1; i > 0; --i) {
+			int swap = random.nextInt(i + 1);
+			int value = values[i];
+			values[i] = values[swap];
+			values[swap] = value;
+		}
+	}
+
+	/**
+	 * Generates a file of Levels
+	 * @param args the # of rows, # of columns, # of colors, # of Levels, seed, and
+	 * optionally the file to write (otherwise they are printed)
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 5) {
+			System.out.println("Usage: Generator rows cols colors count seed [file]");
+			return;
+		}
+
+		Generator generator = new Generator(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+				Integer.parseInt(args[2]));
+
+		long start = System.nanoTime();
+		Level[] levels = generator.generate(Integer.parseInt(args[3]), Long.parseLong(args[4]));
+		long millis = (System.nanoTime() - start) / 1_000_000;
+
+		// write to the file if there is one, otherwise print
+		if (args.length > 5) {
+			Level.writeLevels(levels, new File(args[5]));
+			System.out.println("Generated " + levels.length + " levels in " + millis + "ms");
+		}
+		else for (Level level : levels) System.out.println(level);
+	}
+}
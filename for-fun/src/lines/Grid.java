@@ -2,10 +2,15 @@ package lines;
 
 // for arrays that can change size
 import java.util.ArrayList;
+// for looking up end-point sets by color
+import java.util.HashMap;
+// for filling arrays
+import java.util.Arrays;
 
 // for drawing
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Rectangle;
 
 /**
  * A grid of Tiles for playing Lines
@@ -13,21 +18,77 @@ import java.awt.Graphics;
  */
 public final class Grid {
 	/**
-	 * the Tiles in this Grid
+	 * the state of each cell in this Grid (Tiles are views of these)
 	 */
-	private final Tile[][] tiles;
+	private final Cells cells;
 	/**
-	 * the EndTiles in this Grid
+	 * the cells of the EndTiles in this Grid
 	 */
-	private final EndTile[] ends;
+	private final int[] ends;
 	/**
 	 * the Paths currently present between Tiles
 	 */
 	private ArrayList<Path> paths;
+	/**
+	 * the Paths of each color, by the index in ends of the EndTile they started from
+	 * <br>
+	 * so the Paths of end-point set i are in slots i * 2 and i * 2 + 1,
+	 * and the other Path of the same color as slot id is in slot id ^ 1
+	 */
+	private final Path[] pathsByEnd;
+	/**
+	 * the slot in pathsByEnd of the Path through each cell, or NO_PATH
+	 */
+	private final int[] owner;
+	/**
+	 * the end-point set of each color
+	 */
+	private final HashMap<Color, Integer> colorSets;
 	/**
 	 * the Path being added to currently
 	 */
 	private Path activePath;
+	/**
+	 * what checks whether this Grid can still be won, or null until it is first asked
+	 */
+	private Watchdog watchdog;
+	/**
+	 * the moves made, for undoing and redoing them, or null if they aren't kept
+	 */
+	private History history;
+	/**
+	 * what draws this Grid and tracks which cells need painting, or null until it is first drawn
+	 */
+	private GridPainter painter;
+	/**
+	 * whether forced moves are being made automatically (see propagate)
+	 */
+	private boolean propagating;
+	/**
+	 * the cells whose Path changed since the last propagate, while propagating
+	 */
+	private int[] changed;
+	/**
+	 * the # of cells in changed
+	 */
+	private int changedCount;
+	/**
+	 * the cells propagate still has to look at, as a stack
+	 */
+	private int[] work;
+	/**
+	 * whether each cell is in work, or null until propagating is first turned on
+	 */
+	private boolean[] inWork;
+	/**
+	 * somewhere to put the neighbors of a cell (and the cell itself), for propagate
+	 */
+	private final int[] around;
+	
+	/**
+	 * the owner of a cell with no Path through it
+	 */
+	public static final int NO_PATH = -1;
 	
 	/**
 	 * the minimum difference in RGB values to count as a contrasting color
@@ -60,46 +121,73 @@ public final class Grid {
 			throw new IllegalArgumentException("Can't have null BlockTile coordinates");
 		
 		// initialize all instance variables to the right size
-		tiles = new Tile[rows][cols];
-		ends = new EndTile[sets.length * 2];
+		// (all cells start as PATH cells, like a PathTile)
+		cells = new Cells(rows, cols);
+		ends = new int[sets.length * 2];
 		paths = new ArrayList<Path>();
+		pathsByEnd = new Path[ends.length];
+		owner = new int[cells.size()];
+		colorSets = new HashMap<Color, Integer>();
 		// there is not currently an active path
 		activePath = null;
 		
-		// loop over all cells in the tiles-grid
-		for (int row = 0; row < rows; ++row)
-			for (int col = 0; col < cols; ++col)
-				// put a PathTile (default) into this cell
-				tiles[row][col] = new PathTile(row, col);
+		// no Path goes through any cell yet
+		Arrays.fill(owner, NO_PATH);
+		// and nothing has changed
+		propagating = false;
+		changed = new int[16];
+		changedCount = 0;
+		work = new int[16];
+		inWork = null;
+		around = new int[5];
 		
-		// initialize the list of colors already used
-		ArrayList<Color> colors = new ArrayList<Color>();
-		colors.add(Tile.BLANK);
+		// get a well-separated color for each end-point set
+		Color[] colors = Palette.colors(sets.length);
 		
 		// loop over all end-point sets
 		for (int set = 0; set < sets.length; ++set) {
-			// get a random color which contrasts all previous colors
-			Color cur = randomContrastColor(colors);
-			// add this color to the list of contrasting colors
-			
-			colors.add(cur);
+			Color cur = colors[set];
+			colorSets.put(cur, set);
 			// create the EndTiles for this set, and save in ends
-			ends[set * 2] = new EndTile(sets[set][0], sets[set][1], cur);
-			ends[set * 2 + 1] = new EndTile(sets[set][2], sets[set][3], cur);
-			// set the proper spots in the tiles-grid to this EndTiles
-			setTile(ends[set * 2]);
-			setTile(ends[set * 2 + 1]);
+			ends[set * 2] = setEnd(sets[set][0], sets[set][1], cur);
+			ends[set * 2 + 1] = setEnd(sets[set][2], sets[set][3], cur);
 		}
 		
 		// loop over all block-tile coordinates, setting that spot to a BlockTile
-		for (int[] block : blocks) setTile(new BlockTile(block[0], block[1]));
+		for (int[] block : blocks) cells.setKind(cellAt(block[0], block[1]), Cells.BLOCK);
+	}
+	
+	/**
+	 * Makes a cell an end-point
+	 * @param row the row of the cell
+	 * @param col the column of the cell
+	 * @param color the color of the end-point
+	 * @return the # of the cell
+	 */
+	private int setEnd(int row, int col, Color color) {
+		int cell = cellAt(row, col);
+		cells.setKind(cell, Cells.END);
+		cells.setColor(cell, color);
+		return cell;
 	}
 	
 	/**
 	 * Get the columns in the Grid
-	 * @return the number of columns in tiles
+	 * @return the number of columns in the Grid
+	 */
+	public int getCols() {return cells.getCols();}
+	
+	/**
+	 * Get the rows in the Grid
+	 * @return the number of rows of cells
 	 */
-	public int getCols() {return tiles[0].length;}
+	public int getRows() {return cells.getRows();}
+	
+	/**
+	 * Gets the packed state of this Grid's cells
+	 * @return this.cells
+	 */
+	public Cells getCells() {return cells;}
 	
 	/**
 	 * Grabs the Tile connected to a given Tile by a side
@@ -143,25 +231,240 @@ public final class Grid {
 	 * @return the Path that contains this Tile
 	 */
 	public Path getPath(Tile tile) {
-		// loop over all Paths, and if they contain the Tile return them
-		for (Path path : paths) if (path.containsTile(tile)) return path;
+		// look up the Path through this Tile's cell
+		Path path = findPath(tile);
 		// if not Path contains the Tile, throw an exception
-		throw new IllegalArgumentException(tile + " is not on any path");
+		if (path == null) throw new IllegalArgumentException(tile + " is not on any path");
+		return path;
+	}
+	
+	/**
+	 * Finds the Path through a Tile, if there is one
+	 * @param tile the Tile to use
+	 * @return the Path that contains this Tile, or null if none does
+	 */
+	public Path findPath(Tile tile) {
+		int id = getOwner(tile);
+		return id == NO_PATH ? null : pathsByEnd[id];
+	}
+	
+	/**
+	 * Gets the slot in pathsByEnd for a Path starting at an EndTile
+	 * @param start the # of the cell of the EndTile the Path starts from
+	 * @return the index of start in ends
+	 */
+	int endIndex(int start) {
+		// the color gives the set, and the set has two EndTiles to choose from
+		Integer set = cells.getKind(start) == Cells.END ? colorSets.get(cells.getColor(start)) : null;
+		if (set == null) throw new IllegalArgumentException(tileAt(start) + " is not an end-point in this grid");
+		return ends[set * 2] == start ? set * 2 : set * 2 + 1;
+	}
+	
+	/**
+	 * Sets which Path goes through a cell
+	 * @param cell the # of the cell
+	 * @param id the slot in pathsByEnd of the Path, or NO_PATH
+	 */
+	void setOwner(int cell, int id) {
+		if (watchdog != null) watchdog.touch(cell, owner[cell], id);
+		if (propagating) noteChanged(cell);
+		owner[cell] = id;
+	}
+	
+	/**
+	 * Notes that a cell was added to or removed from the end of a Path, for undoing it
+	 * @param id the slot in pathsByEnd of the Path
+	 * @param cell the # of the cell
+	 * @param added whether the cell was added (rather than removed)
+	 */
+	void noteEdit(int id, int cell, boolean added) {
+		if (history != null) history.record(id, cell, added, activePath == null ? NO_PATH : activePath.getId());
+	}
+	
+	/**
+	 * Adds a cell to the list of cells changed since the last propagate
+	 * @param cell the # of the cell
+	 */
+	private void noteChanged(int cell) {
+		if (changedCount == changed.length) changed = Arrays.copyOf(changed, changedCount * 2);
+		changed[changedCount++] = cell;
+	}
+	
+	/**
+	 * Gets which Path goes through a Tile's cell
+	 * @param tile the Tile
+	 * @return the slot in pathsByEnd of the Path, or NO_PATH
+	 */
+	int getOwner(Tile tile) {
+		return owner[cellOf(tile)];
+	}
+	
+	/**
+	 * Gets which Path goes through a cell
+	 * @param cell the # of the cell
+	 * @return the slot in pathsByEnd of the Path, or NO_PATH
+	 */
+	int getOwner(int cell) {
+		return owner[cell];
+	}
+	
+	/**
+	 * Changes which Path is being added to
+	 * @param path the Path, or null for none
+	 */
+	void setActivePath(Path path) {activePath = path;}
+	
+	/**
+	 * Gets the # of end-point sets (colors)
+	 * @return half the # of EndTiles
+	 */
+	int getSetCount() {return ends.length / 2;}
+	
+	/**
+	 * Gets the Path started from an EndTile
+	 * @param slot the index of the EndTile (see endIndex)
+	 * @return the Path, or null if there is none
+	 */
+	Path getPathFrom(int slot) {return pathsByEnd[slot];}
+	
+	/**
+	 * Gets the cell of an EndTile
+	 * @param slot the index of the EndTile (see endIndex)
+	 * @return the # of its cell
+	 */
+	int getEndCell(int slot) {return ends[slot];}
+	
+	/**
+	 * Gets the # of a Tile's cell
+	 * @param tile the Tile
+	 * @return the # of the cell in cells at the Tile's location
+	 */
+	int cellOf(Tile tile) {
+		return cellAt(tile.getRow(), tile.getCol());
+	}
+	
+	/**
+	 * Gets the # of the cell at a location
+	 * @param row the row of the cell
+	 * @param col the column of the cell
+	 * @return the # of the cell in cells
+	 */
+	private int cellAt(int row, int col) {
+		if (!isValidTile(row, col))
+			throw new IllegalArgumentException("Invalid tile location ("
+					+ row + ", " + col + ") in grid " + 
+					cells.getRows() + "x" + cells.getCols());
+		return cells.index(row, col);
+	}
+	
+	/**
+	 * Checks if a Path could be extended by a Tile, without changing anything
+	 * @param path the Path to extend
+	 * @param next the Tile to extend by
+	 * @return OK if path.extend(next) would succeed, otherwise why not
+	 */
+	public MoveResult canExtend(Path path, Tile next) {return canExtend(path, cellOf(next));}
+	
+	/**
+	 * Checks if a Path could be extended by a cell, without changing anything
+	 * @param path the Path to extend
+	 * @param next the # of the cell to extend by
+	 * @return OK if path.extend(next) would succeed, otherwise why not
+	 */
+	MoveResult canExtend(Path path, int next) {
+		if (path == null) return MoveResult.NO_PATH;
+		// a complete Path has nowhere left to go
+		if (path.isComplete()) return MoveResult.PATH_COMPLETE;
+		return canStep(path.lastCell(), path.getColor(), path.getId(), next);
+	}
+	
+	/**
+	 * Checks if a Path could be started from an EndTile to a Tile, without changing anything
+	 * @param start the EndTile to start from
+	 * @param next the Tile to go to
+	 * @return OK if new Path(start, next, this) would succeed, otherwise why not
+	 */
+	public MoveResult canStart(EndTile start, Tile next) {return canStart(cellOf(start), cellOf(next));}
+	
+	/**
+	 * Checks if a Path could be started from an END cell to another cell, without changing anything
+	 * @param start the # of the cell to start from
+	 * @param next the # of the cell to go to
+	 * @return OK if new Path(start, next, this) would succeed, otherwise why not
+	 */
+	MoveResult canStart(int start, int next) {
+		// an EndTile already on a Path cannot start another
+		if (cells.isComplete(start)) return MoveResult.END_USED;
+		return canStep(start, cells.getColor(start), endIndex(start), next);
+	}
+	
+	/**
+	 * Checks if a Path could be connected to another, without changing anything
+	 * @param path the Path to connect from
+	 * @param other the Path to connect to
+	 * @return OK if path.connect(other) would succeed, otherwise why not
+	 */
+	public MoveResult canConnect(Path path, Path other) {
+		if (path == null || other == null || path == other) return MoveResult.NO_PATH;
+		// only same-color Paths connect
+		if (!path.getColor().equals(other.getColor())) return MoveResult.WRONG_COLOR;
+		if (path.isComplete() || other.isComplete()) return MoveResult.PATH_COMPLETE;
+		
+		// the ends of the Paths must touch
+		byte side = cells.sideBetween(path.lastCell(), other.lastCell());
+		if (side == Tile.NOT_SET) return MoveResult.NOT_ADJACENT;
+		// other's end will be cleared before it is joined, so only path's end can block
+		if (!cells.canSetOut(path.lastCell(), side)) return MoveResult.BLOCKED;
+		return MoveResult.OK;
+	}
+	
+	/**
+	 * Checks if a path of some color could go from one cell to the next
+	 * @param from the # of the cell to go out of
+	 * @param color the color of the path
+	 * @param id the slot in pathsByEnd of the path
+	 * @param next the # of the cell to go in to
+	 * @return OK if the step is possible, otherwise why not
+	 */
+	private MoveResult canStep(int from, Color color, int id, int next) {
+		// only a blank Tile (no path) or same color Tile (end dot) can be added
+		Color nextColor = cells.getColor(next);
+		if (nextColor != null && !nextColor.equals(color)) return MoveResult.WRONG_COLOR;
+		// and only if it is not already on a Path
+		int nextOwner = owner[next];
+		if (nextOwner == id) return MoveResult.ON_PATH;
+		if (nextOwner != NO_PATH) return MoveResult.OCCUPIED;
+		
+		// the cells must share a side that both let the path through
+		byte side = cells.sideBetween(from, next);
+		if (side == Tile.NOT_SET) return MoveResult.NOT_ADJACENT;
+		if (!cells.canSetOut(from, side) || !cells.canSetIn(next, Tile.oppoSide(side))) return MoveResult.BLOCKED;
+		return MoveResult.OK;
+	}
+	
+	/**
+	 * Adds a newly-started Path, and makes it active
+	 * @param path the Path to add
+	 */
+	private void addPath(Path path) {
+		paths.add(path);
+		pathsByEnd[path.getId()] = path;
+		activePath = path;
 	}
 	
 	/**
 	 * Start a Path with a given EndTile and a side to out on
 	 * @param tile the Tile to start the Path with
 	 * @param side the side of the Tile to go out on
+	 * @return the new Path
 	 * @throws InvalidPathException if the new Path would go in an invalid Tile
 	 */
-	public void startPath(EndTile tile, byte side) throws InvalidPathException {
+	public Path startPath(EndTile tile, byte side) throws InvalidPathException {
 		// grab next Tile by side, and attempt to make a Path connecting the two
 		Path newPath = new Path(tile, nextTile(tile, side), this);
-		// if no exception was thrown making the Path, add it to the list of Paths
-		paths.add(newPath);
-		// this new Path is active
-		activePath = newPath;
+		// if no exception was thrown making the Path, add it (it is now active)
+		addPath(newPath);
+		return newPath;
 	}
 	
 	/**
@@ -171,8 +474,19 @@ public final class Grid {
 	public void removePath(Path path) {
 		// make the Path clear all its Tiles
 		path.clear();
+		// then forget about it
+		detachPath(path);
+	}
+	
+	/**
+	 * Removes a Path from the list of Paths, without touching its Tiles
+	 * (for when they have been handed over to another Path)
+	 * @param path the Path to remove
+	 */
+	void detachPath(Path path) {
 		// remove it from the list of Paths
 		paths.remove(path);
+		if (pathsByEnd[path.getId()] == path) pathsByEnd[path.getId()] = null;
 		// if this Path was previously active, it is active no more
 		if (path == activePath) activePath = null;
 	}
@@ -184,22 +498,10 @@ public final class Grid {
 	public void removePathUpTo(Tile tile) {
 		// get the Path with this Tile
 		Path remove = getPath(tile);
-		// since this Path is being modified, it is active
-		activePath = remove;
 		
-		// while there are Tiles before this one in the Path
-		while (remove.lastTile() != tile) {
-			// if the Path still exists (it hasn't self-removed)
-			if (paths.contains(remove)) 
-				// back up one more
-				remove.backUp();
-			// or if the back-up triggered a self-remove
-			else {
-				// no path is active, and leave
-				activePath = null;
-				break;
-			}
-		}
+		// back it up, and since this Path is being modified it is active (unless it self-removed)
+		if (remove.backUpTo(tile)) activePath = remove;
+		else activePath = null;
 	}
 	
 	/**
@@ -208,21 +510,16 @@ public final class Grid {
 	 * @return whether the extension succeeded
 	 */
 	public boolean extendSomePath(Tile tile) {
+		int cell = cellOf(tile);
 		// loop over all Paths
 		for (Path path : paths) {
-			// if this Path isn't already complete
-			if (!path.isComplete()) {
-				try {
-					// attempt to extend
-					path.extend(tile);
-					// if the extension didn't throw an exception
-					// this Path is now active
-					activePath = path;
-					// note that an extension succeeded
-					return true;
-				}
-				// if the extension failed
-				catch (InvalidPathException pathE) {}
+			// if this Path can be extended by the Tile (so isn't already complete)
+			if (canExtend(path, cell).isOk()) {
+				// extend it, and this Path is now active
+				path.extend(cell);
+				activePath = path;
+				// note that an extension succeeded
+				return true;
 			}
 		}
 		
@@ -236,24 +533,15 @@ public final class Grid {
 	 * @return whether the start succeeded
 	 */
 	public boolean startSomePath(Tile tile) {
+		int cell = cellOf(tile);
 		// loop over all possible starting spots
-		for (EndTile start : ends) {
-			// if this start can be used
-			if (!start.isComplete()) {
-				try {
-					// attempt to start a path using this start and the tile
-					Path newPath = new Path(start, tile, this);
-					// if the start didn't throw an exception
-					
-					// add this new path
-					paths.add(newPath);
-					// this new path is active
-					activePath = newPath;
-					// note that the start succeeded
-					return true;
-				}
-				// if the start failed
-				catch (InvalidPathException pathE) {}
+		for (int start : ends) {
+			// if this start can be used with the tile
+			if (canStart(start, cell).isOk()) {
+				// start a path using this start and the tile, and add it (it is now active)
+				addPath(new Path(start, cell, this));
+				// note that the start succeeded
+				return true;
 			}
 		}
 		
@@ -276,50 +564,275 @@ public final class Grid {
 	 * @return whether the connection was successful
 	 */
 	public boolean connectSomePath(Tile tile) {
-		try {
-			// attempt to get the Path
-			Path path = getPath(tile);
-			
-			// loop over all other Paths available
-			for (int other = 0; other < paths.size(); ++other) {
-				// if this Path has the same color (can connect)
-				if (paths.get(other) != path && paths.get(other).getColor().equals(path.getColor())) {
-					try {
-						// try to connect it
-						path.connect(paths.get(other));
-						// note that the connection succeeded
-						return true;
-					}
-					// if the connections failed
-					catch (InvalidPathException e) {}
-				}
-			}
+		// get the Path, and the other Path of the same color (started from the other end)
+		Path path = findPath(tile);
+		Path other = path == null ? null : pathsByEnd[path.getId() ^ 1];
+		
+		// if both exist and can be connected, connect them
+		if (canConnect(path, other).isOk()) {
+			path.connect(other);
+			// note that the connection succeeded
+			return true;
 		}
-		// if this Tile isn't on a Path, give up
-		catch (IllegalArgumentException e) {}
 		
 		// note that the connection failed
 		return false;
 	}
 
+	/**
+	 * Turns keeping moves for undoing and redoing on or off (turning it off forgets them)
+	 * @param undoable whether moves should be kept
+	 */
+	public void setUndoable(boolean undoable) {
+		if (!undoable) history = null;
+		else if (history == null) history = new History();
+	}
+	
+	/**
+	 * Ends the move being made, so it is undone by itself (every change since the last
+	 * endMove is one move, so forced moves can be undone with the click that caused them)
+	 */
+	public void endMove() {
+		if (history != null) history.end(activePath == null ? NO_PATH : activePath.getId());
+	}
+	
+	/**
+	 * Undoes the last move, making the Path that was active before it active again
+	 * @return whether there was a move to undo
+	 */
+	public boolean undo() {
+		endMove();
+		if (history == null || !history.canUndo()) return false;
+		setActiveSlot(history.undo(this));
+		return true;
+	}
+	
+	/**
+	 * Redoes the last move undone, making the Path that was active after it active again
+	 * @return whether there was a move to redo
+	 */
+	public boolean redo() {
+		endMove();
+		if (history == null || !history.canRedo()) return false;
+		setActiveSlot(history.redo(this));
+		return true;
+	}
+	
+	/**
+	 * Makes the Path from an EndTile active, after undoing or redoing
+	 * @param slot the slot in pathsByEnd of the Path, or NO_PATH for none
+	 */
+	private void setActiveSlot(int slot) {
+		activePath = slot == NO_PATH ? null : pathsByEnd[slot];
+		// the cells changed by undoing are left alone, or propagate would just force the moves again
+		changedCount = 0;
+	}
+	
+	/**
+	 * Adds a cell to the end of the Path from an EndTile, starting it if there is none
+	 * (for redoing or undoing an edit, so nothing is checked)
+	 * @param slot the slot in pathsByEnd of the Path
+	 * @param cell the # of the cell
+	 */
+	void pushCell(int slot, int cell) {
+		Path path = pathsByEnd[slot];
+		if (path != null) path.append(cell);
+		else {
+			path = new Path(cell, this);
+			paths.add(path);
+			pathsByEnd[slot] = path;
+		}
+	}
+	
+	/**
+	 * Removes the last cell of the Path from an EndTile
+	 * (for redoing or undoing an edit, so nothing is checked)
+	 * @param slot the slot in pathsByEnd of the Path
+	 */
+	void popCell(int slot) {
+		pathsByEnd[slot].removeLast();
+	}
+	
+	/**
+	 * Turns automatically making forced moves on or off
+	 * @param propagating whether propagate should make forced moves
+	 */
+	public void setPropagating(boolean propagating) {
+		this.propagating = propagating;
+		changedCount = 0;
+		if (propagating) {
+			if (inWork == null) inWork = new boolean[cells.size()];
+			// nothing has been noted as changed yet, so every head is worth a look
+			for (int end : ends) noteChanged(end);
+			for (Path path : paths) noteChanged(path.lastCell());
+		}
+	}
+	
+	/**
+	 * Gets this.propagating
+	 * @return whether propagate makes forced moves
+	 */
+	public boolean isPropagating() {return propagating;}
+	
+	/**
+	 * Makes every forced move: a Path end or unused EndTile with only one way to go goes that way,
+	 * over and over until none are left. Only the heads next to cells which changed since
+	 * the last propagate are looked at, and then only the heads next to each forced move.
+	 * <br>
+	 * The active Path stays the same (unless it was joined into another Path).
+	 * @return the # of forced moves made
+	 */
+	public int propagate() {
+		if (!propagating) return 0;
+		Path active = activePath;
+		int moves = 0;
+		
+		// the stack of cells to look at, each on it at most once at a time
+		int workCount = 0;
+		do {
+			// every changed cell, and every cell next to one, could now have a forced move
+			for (int i = 0; i < changedCount; ++i) {
+				int cell = changed[i];
+				int count = cells.neighborsOf(cell, around);
+				// the changed cell itself goes after its neighbors
+				around[count++] = cell;
+				for (int n = 0; n < count; ++n) {
+					if (inWork[around[n]]) continue;
+					inWork[around[n]] = true;
+					if (workCount == work.length) work = Arrays.copyOf(work, workCount * 2);
+					work[workCount++] = around[n];
+				}
+			}
+			changedCount = 0;
+			
+			// make the forced move (if any) of the next cell, which notes more changed cells
+			if (workCount > 0) {
+				int cell = work[--workCount];
+				inWork[cell] = false;
+				if (makeForcedMove(cell)) ++moves;
+			}
+		} while (workCount > 0 || changedCount > 0);
+		
+		// a forced move doesn't change which Path is being drawn
+		if (active != null && pathsByEnd[active.getId()] == active) activePath = active;
+		return moves;
+	}
+	
+	/**
+	 * Makes the move from a cell, if the cell is a head (the end of an incomplete Path,
+	 * or an unused EndTile) with only one move
+	 * @param cell the # of the cell
+	 * @return whether a move was made
+	 */
+	private boolean makeForcedMove(int cell) {
+		int count = cells.neighborsOf(cell, around);
+		// the only move found so far: a cell to go to, or a Path to join
+		int moves = 0;
+		int onlyCell = -1;
+		Path onlyPath = null;
+		
+		if (owner[cell] == NO_PATH) {
+			// an unused EndTile can start a Path, or be reached by the end of its other Path
+			if (cells.getKind(cell) != Cells.END) return false;
+			for (int n = 0; n < count && moves < 2; ++n) {
+				int next = around[n];
+				Path other = pathEndingAt(next);
+				if (canStart(cell, next).isOk()) {
+					++moves;
+					onlyCell = next;
+				}
+				else if (other != null && canExtend(other, cell).isOk()) {
+					++moves;
+					onlyPath = other;
+				}
+			}
+			if (moves != 1) return false;
+			
+			if (onlyPath != null) onlyPath.extend(cell);
+			else {
+				Path path = new Path(cell, onlyCell, this);
+				paths.add(path);
+				pathsByEnd[path.getId()] = path;
+			}
+			return true;
+		}
+		
+		// otherwise it has to be the end of an incomplete Path, which can extend or join its other Path
+		Path path = pathEndingAt(cell);
+		if (path == null || path.isComplete()) return false;
+		for (int n = 0; n < count && moves < 2; ++n) {
+			int next = around[n];
+			Path other = pathEndingAt(next);
+			if (canExtend(path, next).isOk()) {
+				++moves;
+				onlyCell = next;
+			}
+			else if (canConnect(path, other).isOk()) {
+				++moves;
+				onlyPath = other;
+			}
+		}
+		if (moves != 1) return false;
+		
+		if (onlyPath != null) path.connect(onlyPath);
+		else path.extend(onlyCell);
+		return true;
+	}
+	
+	/**
+	 * Finds the Path whose last Tile is in a cell
+	 * @param cell the # of the cell
+	 * @return the Path, or null if no Path ends there
+	 */
+	private Path pathEndingAt(int cell) {
+		Path path = owner[cell] == NO_PATH ? null : pathsByEnd[owner[cell]];
+		return path != null && path.lastCell() == cell ? path : null;
+	}
+	
 	/**
 	 * Checks if the Grid is complete
 	 * @return if the Grid is complete
 	 */
 	public boolean isComplete() {
-		// loop over all Tiles, and if any is incomplete return false
-		for (Tile[] row : tiles) for (Tile tile : row)
-			if (!tile.isComplete()) return false;
-		return true;
+		// the cells keep count of how many are incomplete
+		return cells.isComplete();
 	}
 	
+	/**
+	 * Checks if the Grid can no longer be won without taking moves back
+	 * (only catches some ways this can happen, see Watchdog)
+	 * @return why the Grid can't be won, or null if it is not known to be dead
+	 */
+	public String whyDead() {
+		// only start watching once someone asks, so Grids that are never played don't pay for it
+		if (watchdog == null) watchdog = new Watchdog(this);
+		return watchdog.check();
+	}
+	
+	/**
+	 * Checks if the Grid can no longer be won without taking moves back
+	 * @return whether whyDead found a reason
+	 */
+	public boolean isDead() {return whyDead() != null;}
+	
 	/**
 	 * Draw the Grid
 	 * @param window the window to draw on
 	 */
 	public void draw(Graphics window) {
-		// loop over all Tiles, drawing each
-		for (Tile[] row : tiles) for (Tile tile : row) tile.draw(window);
+		// the painter is made on the first draw, so Grids that are never drawn (like a Solver's) don't track changes
+		if (painter == null) painter = new GridPainter(cells);
+		painter.draw(window);
+	}
+	
+	/**
+	 * Finds the part of the window that the next draw will change
+	 * @return the bounds of the Tiles changed since the last draw (all of them if the Grid
+	 * hasn't been drawn yet), or null if none changed
+	 */
+	public Rectangle getChangedBounds() {
+		if (painter == null) return new Rectangle(0, 0, getCols() * Tile.SIZE + 1, getRows() * Tile.SIZE + 1);
+		return painter.getChangedBounds();
 	}
 	
 	/**
@@ -327,7 +840,13 @@ public final class Grid {
 	 * @param tile the Tile to set
 	 */
 	public void setTile(Tile tile) {
-		tiles[tile.getRow()][tile.getCol()] = tile;
+		// copy the Tile's state into its cell
+		int cell = cellAt(tile.getRow(), tile.getCol());
+		cells.setKind(cell, tile.getKind());
+		cells.setIn(cell, tile.getIn());
+		cells.setOut(cell, tile.getOut());
+		cells.setColor(cell, tile.getColor());
+		if (watchdog != null) watchdog.touch(cell, owner[cell], owner[cell]);
 	}
 	
 	/**
@@ -337,11 +856,16 @@ public final class Grid {
 	 * @return the Tile in that spot
 	 */
 	public Tile getTile(int row, int col) {
-		if (!isValidTile(row, col))
-				throw new IllegalArgumentException("Invalid tile location ("
-						+ row + ", " + col + ") in grid " + 
-						tiles.length + "x" + tiles[0].length);
-		return tiles[row][col];
+		return cells.tile(cellAt(row, col));
+	}
+	
+	/**
+	 * Get a Tile from its cell (a new view, so not for anything that runs often)
+	 * @param cell the # of the cell
+	 * @return the Tile viewing that cell
+	 */
+	Tile tileAt(int cell) {
+		return cells.tile(cell);
 	}
 	
 	/**
@@ -351,7 +875,7 @@ public final class Grid {
 	 * @return whether this location is valid
 	 */
 	public boolean isValidTile(int row, int col) {
-		return row < tiles.length && col < tiles[0].length && row >= 0 && col >= 0;
+		return cells.isValid(row, col);
 	}
 	
 	/**
@@ -421,15 +945,15 @@ public final class Grid {
 	
 	public String toString() {
 		// declare class on own line
-		String ret = "Grid\n";
+		StringBuilder ret = new StringBuilder("Grid\n");
 		// loop over all rows of tiles
-		for (Tile[] row : tiles) {
+		for (int row = 0; row < cells.getRows(); ++row) {
 			// add in tiles, tab-separated
-			for (Tile tile : row) ret += tile + "\t";
+			for (int col = 0; col < cells.getCols(); ++col) ret.append(getTile(row, col)).append('\t');
 			// newline between rows
-			ret += '\n';
+			ret.append('\n');
 		}
 		// add in active path at the end
-		return ret + "active path = " + activePath;
+		return ret.append("active path = ").append(activePath).toString();
 	}
 }
\ No newline at end of file
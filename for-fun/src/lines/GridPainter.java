@@ -0,0 +1,88 @@
+package lines;
+
+// for drawing
+import java.awt.Graphics;
+import java.awt.Rectangle;
+
+/**
+ * Draws a Grid, keeping track of which cells changed since it was last drawn so only
+ * the part of the window holding them has to be painted (see getChangedBounds)
+ * <br>
+ * Nothing is drawn ahead of time: a draw only goes over the cells inside the window's clip,
+ * drawing each one's background and then its path, so memory doesn't grow with the Grid
+ * and a paint costs about as much as the cells it covers, however big the Grid is.
+ * Each Tile only draws inside its own square, plus its edges 1 pixel past it
+ * (so the Tiles just above and left of the clip are drawn too).
+ * @author faith
+ */
+final class GridPainter {
+	/**
+	 * the cells of the Grid being drawn
+	 */
+	private final Cells cells;
+
+	/**
+	 * Initializes a GridPainter, which starts tracking changes to the cells
+	 * @param cells the cells of the Grid to draw
+	 */
+	GridPainter(Cells cells) {
+		this.cells = cells;
+		// from now on, only changed cells need painting
+		cells.trackChanges();
+		cells.clearChanges();
+	}
+
+	/**
+	 * Finds the part of the window that the next draw will change, so only that has to be painted
+	 * @return the smallest rectangle holding every cell changed since the last draw, or null if none did
+	 */
+	Rectangle getChangedBounds() {
+		if (cells.getChangedCount() == 0) return null;
+		// the rows and columns the changed cells span
+		int top = cells.getRows();
+		int bottom = 0;
+		int left = cells.getCols();
+		int right = 0;
+		for (int i = 0; i < cells.getChangedCount(); ++i) {
+			int cell = cells.getChanged(i);
+			top = Math.min(top, cells.getRow(cell));
+			bottom = Math.max(bottom, cells.getRow(cell));
+			left = Math.min(left, cells.getCol(cell));
+			right = Math.max(right, cells.getCol(cell));
+		}
+		return new Rectangle(left * Tile.SIZE, top * Tile.SIZE,
+				(right - left + 1) * Tile.SIZE, (bottom - top + 1) * Tile.SIZE);
+	}
+
+	/**
+	 * Draws the cells of the Grid inside the window's clip (all of them if it has none)
+	 * @param window the window to draw on
+	 */
+	void draw(Graphics window) {
+		// the window is about to be up to date
+		cells.clearChanges();
+
+		// find the rows and columns the clip covers
+		int firstRow = 0;
+		int lastRow = cells.getRows() - 1;
+		int firstCol = 0;
+		int lastCol = cells.getCols() - 1;
+		Rectangle clip = window.getClipBounds();
+		if (clip != null) {
+			// one pixel further up and left, for the edges of the Tiles before the clip
+			firstRow = Math.max(firstRow, Math.floorDiv(clip.y - 1, Tile.SIZE));
+			lastRow = Math.min(lastRow, Math.floorDiv(clip.y + clip.height - 1, Tile.SIZE));
+			firstCol = Math.max(firstCol, Math.floorDiv(clip.x - 1, Tile.SIZE));
+			lastCol = Math.min(lastCol, Math.floorDiv(clip.x + clip.width - 1, Tile.SIZE));
+		}
+
+		// draw each cell's background, then the path through it
+		for (int row = firstRow; row <= lastRow; ++row) {
+			for (int col = firstCol; col <= lastCol; ++col) {
+				int cell = cells.index(row, col);
+				Tile.drawBackground(window, cells, cell);
+				Tile.drawPath(window, cells, cell);
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,213 @@
+package lines;
+
+// for growing the ring of edits
+import java.util.Arrays;
+
+/**
+ * The moves made on a Grid, so they can be undone and redone. Every move is kept as
+ * the cells it added to or removed from the ends of Paths (and the Path each belonged to),
+ * in the order it made them, so
+ * <ul>
+ * 	<li>undoing a move takes back its edits in reverse, and redoing it makes them again,
+ * 	each costing about as much as the move itself</li>
+ * 	<li>a move that joins or cuts a Path only costs the cells it moved, not the whole Grid</li>
+ * 	<li>and the edits are kept in a ring, so once it is full the oldest moves are forgotten
+ * 	to make room for new ones</li>
+ * </ul>
+ * A move is every edit since the last one ended (see end), so a click and the forced moves
+ * it causes are undone together. Making a new move forgets any moves which were undone.
+ * @author faith
+ */
+final class History {
+	/**
+	 * the cell of each edit, in a ring indexed by the edit's position
+	 */
+	private int[] editCells;
+	/**
+	 * the slot (see Grid.endIndex) of the Path each edit added a cell to, or ~slot if it removed one
+	 */
+	private int[] editSlots;
+	/**
+	 * the position of the next edit, just after the last edit of the last move made
+	 */
+	private long position;
+	/**
+	 * the position of the first edit of each move, in a ring indexed by the move's #
+	 */
+	private final long[] starts;
+	/**
+	 * the position just after the last edit of each move
+	 */
+	private final long[] ends;
+	/**
+	 * the slot of the active Path before each move, or Grid.NO_PATH
+	 */
+	private final int[] activeBefore;
+	/**
+	 * the slot of the active Path after each move, or Grid.NO_PATH
+	 */
+	private final int[] activeAfter;
+	/**
+	 * the # of the oldest move still kept
+	 */
+	private long oldest;
+	/**
+	 * the # of moves made (and not undone), so the # of the next move
+	 */
+	private long current;
+	/**
+	 * the # of moves made, counting those undone (which can be redone)
+	 */
+	private long newest;
+	/**
+	 * whether a move has edits but has not ended yet
+	 */
+	private boolean open;
+	/**
+	 * whether the open move has more edits than fit, so can't be kept
+	 */
+	private boolean overflowed;
+	/**
+	 * whether moves are being undone or redone, so the edits are not new
+	 */
+	private boolean replaying;
+
+	/**
+	 * the most edits kept (a power of 2)
+	 */
+	static final int MAX_EDITS = 1 << 16;
+	/**
+	 * the most moves kept (a power of 2)
+	 */
+	static final int MAX_MOVES = 1 << 10;
+
+	/**
+	 * Initializes an empty History
+	 */
+	History() {
+		// the ring of edits starts small, and grows up to MAX_EDITS
+		editCells = new int[64];
+		editSlots = new int[64];
+		position = 0;
+		starts = new long[MAX_MOVES];
+		ends = new long[MAX_MOVES];
+		activeBefore = new int[MAX_MOVES];
+		activeAfter = new int[MAX_MOVES];
+		oldest = current = newest = 0;
+		open = overflowed = replaying = false;
+	}
+
+	/**
+	 * Notes that a cell was added to or removed from the end of a Path, as part of the open move
+	 * @param slot the slot of the Path
+	 * @param cell the # of the cell
+	 * @param added whether the cell was added (rather than removed)
+	 * @param active the slot of the active Path, or Grid.NO_PATH
+	 */
+	void record(int slot, int cell, boolean added, int active) {
+		if (replaying) return;
+		// the first edit of a move starts it, and forgets any undone moves
+		if (!open) {
+			open = true;
+			newest = current;
+			// forget the oldest move, if there is no room for this one (before its slot is reused)
+			if (current - oldest == MAX_MOVES) ++oldest;
+			starts[(int) (current & (MAX_MOVES - 1))] = position;
+			activeBefore[(int) (current & (MAX_MOVES - 1))] = active;
+		}
+
+		// grow the ring if it is full but not at MAX_EDITS, else overwrite the oldest edit
+		if (position == editCells.length && editCells.length < MAX_EDITS) {
+			editCells = Arrays.copyOf(editCells, editCells.length * 2);
+			editSlots = Arrays.copyOf(editSlots, editSlots.length * 2);
+		}
+		long overwritten = position - editCells.length;
+		// forget every move which loses an edit
+		while (oldest < current && starts[(int) (oldest & (MAX_MOVES - 1))] <= overwritten) ++oldest;
+		if (starts[(int) (current & (MAX_MOVES - 1))] <= overwritten) overflowed = true;
+
+		int index = (int) (position++ & (editCells.length - 1));
+		editCells[index] = cell;
+		editSlots[index] = added ? slot : ~slot;
+	}
+
+	/**
+	 * Ends the open move, if it has any edits
+	 * @param active the slot of the active Path after the move, or Grid.NO_PATH
+	 */
+	void end(int active) {
+		if (!open) return;
+		open = false;
+
+		// a move too big to keep can't be undone, and neither can any move before it
+		if (overflowed) {
+			overflowed = false;
+			oldest = current = newest;
+			return;
+		}
+
+		int move = (int) (current & (MAX_MOVES - 1));
+		ends[move] = position;
+		activeAfter[move] = active;
+		newest = ++current;
+	}
+
+	/**
+	 * Checks if there is a move to undo (not counting the open move)
+	 * @return whether a kept move has not been undone
+	 */
+	boolean canUndo() {return current > oldest;}
+
+	/**
+	 * Checks if there is a move to redo
+	 * @return whether a move has been undone, with no new move since
+	 */
+	boolean canRedo() {return current < newest && !open;}
+
+	/**
+	 * Undoes the last move, by taking back each of its edits in reverse
+	 * @param grid the Grid the move was made on
+	 * @return the slot of the active Path before the move, or Grid.NO_PATH
+	 */
+	int undo(Grid grid) {
+		if (open || !canUndo()) throw new IllegalStateException("No move to undo");
+		int move = (int) (--current & (MAX_MOVES - 1));
+		replaying = true;
+		try {
+			// an added cell is removed again, and a removed cell is put back
+			for (long at = ends[move] - 1; at >= starts[move]; --at) {
+				int index = (int) (at & (editCells.length - 1));
+				if (editSlots[index] >= 0) grid.popCell(editSlots[index]);
+				else grid.pushCell(~editSlots[index], editCells[index]);
+			}
+		}
+		finally {
+			replaying = false;
+		}
+		position = starts[move];
+		return activeBefore[move];
+	}
+
+	/**
+	 * Redoes the last move undone, by making each of its edits again
+	 * @param grid the Grid the move was made on
+	 * @return the slot of the active Path after the move, or Grid.NO_PATH
+	 */
+	int redo(Grid grid) {
+		if (!canRedo()) throw new IllegalStateException("No move to redo");
+		int move = (int) (current++ & (MAX_MOVES - 1));
+		replaying = true;
+		try {
+			for (long at = starts[move]; at < ends[move]; ++at) {
+				int index = (int) (at & (editCells.length - 1));
+				if (editSlots[index] >= 0) grid.pushCell(editSlots[index], editCells[index]);
+				else grid.popCell(~editSlots[index]);
+			}
+		}
+		finally {
+			replaying = false;
+		}
+		position = ends[move];
+		return activeAfter[move];
+	}
+}
@@ -2,8 +2,12 @@ package lines;
 
 // for reading from levels.dat
 import java.util.Scanner;
+// for lists of problems with a Level
+import java.util.ArrayList;
 import java.io.File;
 import java.io.IOException;
+// for writing levels
+import java.io.PrintWriter;
 
 /**
  * Stores information about a level of Lines, and can read that information
@@ -74,21 +78,42 @@ public class Level {
 		Level[] levels = null;
 		
 		try {
-			// point a Scanner at the file
-			Scanner reader = new Scanner(new File("src/lines/levels.dat"));
+			levels = readLevels(new File("src/lines/levels.dat"));
+		}
+		
+		// catch some exceptions
+		catch (IOException e) {
+			System.out.println("Something went wrong with the I/O levels.dat file-read");
+			e.printStackTrace();
+		}
+		catch (Exception e) {
+			System.out.println("Something besides I/O went wrong when reading levels.dat");
+			e.printStackTrace();
+		}
+		
+		return levels;
+	}
+	
+	/**
+	 * Reads information about Levels from a file, in the format of levels.dat
+	 * @param file the file to read
+	 * @return an array of the read Levels
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if the file is not in the right format (saying where)
+	 */
+	public static Level[] readLevels(File file) throws IOException {
+		// point a Scanner at the file
+		try (Scanner reader = new Scanner(file)) {
 			// read the number of levels
-			levels = new Level[reader.nextInt()];
+			Level[] levels = new Level[readCount(reader, 0, "the # of levels")];
 			
 			// loop over all Levels to read
 			for (int level = 0; level < levels.length; ++level) {
-				// read the # of rows for this Level
-				int rows = reader.nextInt();
-				// read the # of columns for this Level
-				int cols = reader.nextInt();
-				// read the # of end-point sets for this Level
-				int numSets = reader.nextInt();
-				// read the # of block-tile coordinates for this Level
-				int numBlocks = reader.nextInt();
+				// read the # of rows, columns, end-point sets, and block-tile coordinates for this Level
+				int rows = readCount(reader, level, "the # of rows");
+				int cols = readCount(reader, level, "the # of columns");
+				int numSets = readCount(reader, level, "the # of end-point sets");
+				int numBlocks = readCount(reader, level, "the # of block-tiles");
 				
 				// initialize the sets & blocks arrays to the proper size
 				int[][] sets = new int[numSets][4];
@@ -97,41 +122,135 @@ public class Level {
 				// loop over all sets of end-points to read
 				for (int set = 0; set < numSets; ++set) {
 					// read the coordinates of the first set
-					sets[set][0] = reader.nextInt();
-					sets[set][1] = reader.nextInt();
+					sets[set][0] = readInt(reader, level, "an end-point row");
+					sets[set][1] = readInt(reader, level, "an end-point column");
 					// skip over arrow in the middle
+					if (!reader.hasNext("->")) throw formatError(reader, level, "->");
 					reader.next();
 					// read the coordinates of the second set
-					sets[set][2] = reader.nextInt();
-					sets[set][3] = reader.nextInt();
+					sets[set][2] = readInt(reader, level, "an end-point row");
+					sets[set][3] = readInt(reader, level, "an end-point column");
 				}
 				
 				// loop over all block-tile coordinates to read
 				for (int block = 0; block < numBlocks; ++block) {
 					// read the coordinates of this block-tile
-					blocks[block][0] = reader.nextInt();
-					blocks[block][1] = reader.nextInt();
+					blocks[block][0] = readInt(reader, level, "a block-tile row");
+					blocks[block][1] = readInt(reader, level, "a block-tile column");
 				}
 				
 				// initialize a Level with this information
 				levels[level] = new Level(rows, cols, sets, blocks);
 			}
 			
-			// clean up
-			reader.close();
+			// there should be nothing left over
+			if (reader.hasNext()) throw formatError(reader, levels.length - 1, "the end of the file");
+			return levels;
 		}
-		
-		// catch some exceptions
-		catch (IOException e) {
-			System.out.println("Something went wrong with the I/O levels.dat file-read");
-			e.printStackTrace();
+	}
+	
+	/**
+	 * Reads a number from a level file
+	 * @param reader the Scanner reading the file
+	 * @param level the # of the Level being read
+	 * @param what what the number is, for the error message
+	 * @return the number
+	 * @throws IllegalArgumentException if the next thing is not a number
+	 */
+	private static int readInt(Scanner reader, int level, String what) {
+		if (!reader.hasNextInt()) throw formatError(reader, level, what);
+		return reader.nextInt();
+	}
+	
+	/**
+	 * Reads a count (a number which can't be negative) from a level file
+	 * @param reader the Scanner reading the file
+	 * @param level the # of the Level being read
+	 * @param what what the number is, for the error message
+	 * @return the number
+	 * @throws IllegalArgumentException if the next thing is not a number, or is negative
+	 */
+	private static int readCount(Scanner reader, int level, String what) {
+		int count = readInt(reader, level, what);
+		if (count < 0) throw new IllegalArgumentException("Level #" + level + ": " + what + " is " + count);
+		return count;
+	}
+	
+	/**
+	 * Makes an exception for a level file not in the right format
+	 * @param reader the Scanner reading the file
+	 * @param level the # of the Level being read
+	 * @param expected what should have been next
+	 * @return the exception, to throw
+	 */
+	private static IllegalArgumentException formatError(Scanner reader, int level, String expected) {
+		String found = reader.hasNext() ? "'" + reader.next() + "'" : "the end of the file";
+		return new IllegalArgumentException("Level #" + level + ": expected " + expected + ", found " + found);
+	}
+	
+	/**
+	 * Finds what is wrong with this Level's layout (not whether it can be solved)
+	 * @return a description of each problem, empty if there are none
+	 */
+	public ArrayList<String> findProblems() {
+		ArrayList<String> problems = new ArrayList<String>();
+		if (rows <= 0 || cols <= 0) {
+			problems.add("invalid grid dimensions " + rows + "x" + cols);
+			// nothing else can be checked without a grid
+			return problems;
 		}
-		catch (Exception e) {
-			System.out.println("Something besides I/O went wrong when reading levels.dat");
-			e.printStackTrace();
+		if (sets.length == 0) problems.add("no end-point sets");
+		
+		// which end-point set or block is in each cell, to catch cells used twice
+		String[] used = new String[rows * cols];
+		for (int set = 0; set < sets.length; ++set) {
+			checkCell(sets[set][0], sets[set][1], "end-point set #" + set, used, problems);
+			checkCell(sets[set][2], sets[set][3], "end-point set #" + set, used, problems);
 		}
+		for (int[] block : blocks) checkCell(block[0], block[1], "a block-tile", used, problems);
 		
-		return levels;
+		return problems;
+	}
+	
+	/**
+	 * Checks that a cell used by an end-point or block-tile is valid and not used already
+	 * @param row the row of the cell
+	 * @param col the column of the cell
+	 * @param user what is using the cell
+	 * @param used what is already using each cell
+	 * @param problems where to add any problem found
+	 */
+	private void checkCell(int row, int col, String user, String[] used, ArrayList<String> problems) {
+		if (row < 0 || row >= rows || col < 0 || col >= cols)
+			problems.add(user + " is outside the grid at (" + row + ", " + col + ")");
+		else if (used[row * cols + col] != null)
+			problems.add(user + " and " + used[row * cols + col] + " both use (" + row + ", " + col + ")");
+		else used[row * cols + col] = user;
+	}
+	
+	/**
+	 * Writes Levels to a file, in the format readLevels reads
+	 * @param levels the Levels to write
+	 * @param file the file to write to
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void writeLevels(Level[] levels, File file) throws IOException {
+		try (PrintWriter writer = new PrintWriter(file)) {
+			// write the number of levels
+			writer.println(levels.length);
+			
+			// loop over all Levels to write, each after a blank line
+			for (Level level : levels) {
+				writer.println();
+				// write the grid size, # of end-point sets, and # of block-tiles
+				writer.println(level.rows + " " + level.cols + " " + level.sets.length + " " + level.blocks.length);
+				// write each set of end-points with an arrow in the middle
+				for (int[] set : level.sets)
+					writer.println(set[0] + " " + set[1] + " -> " + set[2] + " " + set[3]);
+				// write each block-tile's coordinates
+				for (int[] block : level.blocks) writer.println(block[0] + " " + block[1]);
+			}
+		}
 	}
 	
 	public String toString() {
@@ -139,7 +258,7 @@ public class Level {
 		String ret = rows + "x" + cols + "\nstarts at\n";
 		// for each set of end-point coordinates, add as coordinate pairs with an arrow
 		for (int[] set : sets)
-			ret += "(" + set[0] + ", " + set[1] + ") -> (" + set[3] + ", " + set[4] + ")\n"; 
+			ret += "(" + set[0] + ", " + set[1] + ") -> (" + set[2] + ", " + set[3] + ")\n"; 
 		// if there are blocks, add an identifier of the shift
 		if (blocks.length > 0) ret += "blocks at\n";
 		// for each block-tile coordinate, add as a coordinate pair
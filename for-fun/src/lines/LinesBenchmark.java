@@ -0,0 +1,186 @@
+package lines;
+
+// for the shared measurement loop
+import benchmark.Harness;
+
+// for writing levels where Level.readLevels can read them
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Benchmarks the Lines engine on square boards from 5x5 up to 200x200, covering
+ * <ul>
+ * 	<li>making a Grid from a Level</li>
+ * 	<li>extending a Path through every cell</li>
+ * 	<li>connecting two Paths which meet halfway</li>
+ * 	<li>removing half of a Path</li>
+ * 	<li>finding the Path through every cell</li>
+ * 	<li>checking if a Grid is complete</li>
+ * 	<li>and reading a file of Levels</li>
+ * </ul>
+ * Most of these work on a "snake", a Level of one color whose only solution winds back and
+ * forth through every row, so Path lengths (and any costs that grow with them) are as big
+ * as the board allows. The others use Levels from Generator, with one color per row.
+ * <br>
+ * Run with optional arguments: # of warm-ups, # of iterations, iteration length (ms)
+ * @author faith
+ */
+public class LinesBenchmark {
+	/**
+	 * the width (and height) of each board benchmarked
+	 */
+	private static final int[] SIZES = {5, 10, 25, 50, 100, 200};
+	/**
+	 * the # of Levels in each file read
+	 */
+	private static final int LEVELS_PER_FILE = 10;
+
+	/**
+	 * the snake Level
+	 */
+	private final Level snake;
+	/**
+	 * the cells of the snake's solution, in order from its first end-point
+	 */
+	private final int[] snakeCells;
+	/**
+	 * a snake Grid with the whole solution drawn, shared by benchmarks which only look at it
+	 */
+	private final Grid complete;
+	/**
+	 * a generated Level
+	 */
+	private final Level generated;
+	/**
+	 * a file of generated Levels, in Level.readLevels' format
+	 */
+	private final File levelFile;
+
+	/**
+	 * Prepares the boards of a size for benchmarking
+	 * @param size the width (and height) of the boards
+	 * @throws IOException if the Levels cannot be written to a temporary file
+	 */
+	private LinesBenchmark(int size) throws IOException {
+		// the snake goes right along even rows and left along odd ones
+		snakeCells = new int[size * size];
+		for (int row = 0; row < size; ++row) for (int i = 0; i < size; ++i)
+			snakeCells[row * size + i] = row * size + (row % 2 == 0 ? i : size - 1 - i);
+		int end = snakeCells[snakeCells.length - 1];
+		snake = new Level(size, size, new int[][] {{0, 0, end / size, end % size}}, new int[0][]);
+		complete = solved();
+
+		Level[] levels = new Generator(size, size, Math.max(size, Generator.fewestColors(size, size)))
+				.generate(LEVELS_PER_FILE, size);
+		generated = levels[0];
+		levelFile = File.createTempFile("lines", ".dat");
+		levelFile.deleteOnExit();
+		Level.writeLevels(levels, levelFile);
+	}
+
+	/**
+	 * Gets a fresh snake Grid with a Path from its first end-point to the second cell
+	 * @return the Grid, ready to extend
+	 */
+	private Grid started() {
+		Grid grid = new Grid(snake);
+		grid.startPath((EndTile) grid.tileAt(snakeCells[0]), Tile.RIGHT);
+		return grid;
+	}
+
+	/**
+	 * Gets a fresh snake Grid with the whole solution drawn
+	 * @return the complete Grid
+	 */
+	private Grid solved() {
+		Grid grid = started();
+		extendAll(grid);
+		return grid;
+	}
+
+	/**
+	 * Gets a fresh snake Grid with a Path from each end-point, meeting in the middle
+	 * @return the Grid, ready to connect the Paths
+	 */
+	private Grid halves() {
+		Grid grid = new Grid(snake);
+		int half = snakeCells.length / 2;
+		Path first = grid.startPath((EndTile) grid.tileAt(snakeCells[0]), Tile.RIGHT);
+		for (int i = 2; i < half; ++i) first.extend(grid.tileAt(snakeCells[i]));
+
+		// the second Path starts from the other end-point, and goes back along the snake
+		Tile end = grid.tileAt(snakeCells[snakeCells.length - 1]);
+		Tile before = grid.tileAt(snakeCells[snakeCells.length - 2]);
+		Path second = grid.startPath((EndTile) end, Tile.sideBetween(end, before));
+		for (int i = snakeCells.length - 3; i >= half; --i) second.extend(grid.tileAt(snakeCells[i]));
+		return grid;
+	}
+
+	/**
+	 * Extends the Path on a started Grid through the rest of the snake
+	 * @param grid the Grid (see started)
+	 */
+	private void extendAll(Grid grid) {
+		Path path = grid.getActivePath();
+		for (int i = 2; i < snakeCells.length; ++i) path.extend(grid.tileAt(snakeCells[i]));
+	}
+
+	/**
+	 * Connects the two Paths on a halves Grid
+	 * @param grid the Grid (see halves)
+	 */
+	private void connect(Grid grid) {
+		Path first = grid.getPath(grid.tileAt(snakeCells[0]));
+		first.connect(grid.getPath(grid.tileAt(snakeCells[snakeCells.length - 1])));
+	}
+
+	/**
+	 * Finds the Path through every cell of a solved Grid
+	 * @param grid the Grid (see solved)
+	 */
+	private void getEveryPath(Grid grid) {
+		Path found = null;
+		for (int cell : snakeCells) found = grid.getPath(grid.tileAt(cell));
+		Harness.sink = found;
+	}
+
+	/**
+	 * Reads the file of generated Levels
+	 */
+	private void readLevels() {
+		try {
+			Harness.sink = Level.readLevels(levelFile);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Runs every benchmark on every size of board
+	 * @param args optionally the # of warm-ups, # of iterations, and iteration length (ms)
+	 * @throws IOException if the Levels cannot be written to temporary files
+	 */
+	public static void main(String[] args) throws IOException {
+		Harness harness = Harness.fromArgs(args);
+		harness.printHeader();
+
+		for (int size : SIZES) {
+			LinesBenchmark bench = new LinesBenchmark(size);
+			String param = size + "x" + size;
+			// the middle of the snake, to back up to
+			int middle = bench.snakeCells[bench.snakeCells.length / 2];
+
+			harness.run("Grid.<init>", param, () -> bench.generated, level -> Harness.sink = new Grid(level));
+			harness.run("Path.extend (whole path)", param, bench::started, bench::extendAll);
+			harness.run("Path.connect (halves)", param, bench::halves, bench::connect);
+			harness.run("Grid.removePathUpTo (half)", param, bench::solved,
+					grid -> grid.removePathUpTo(grid.tileAt(middle)));
+			// these don't change the Grid, so setting up a new one each time would only waste time
+			harness.run("Grid.getPath (every cell)", param, () -> bench.complete, bench::getEveryPath);
+			harness.run("Grid.isComplete", param, () -> bench.complete, grid -> Harness.sink = grid.isComplete());
+			harness.run("Level.readLevels (" + LEVELS_PER_FILE + ")", param, () -> bench, LinesBenchmark::readLevels);
+		}
+	}
+}
@@ -1,13 +1,31 @@
 package lines;
 
+// for saving the game in progress, off the event thread
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+// for growing the list of dragged-over cells
+import java.util.Arrays;
+
 // for drawing
+import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Rectangle;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 
-// for accepting mouse clicks
+// for accepting mouse clicks, drags, and key presses
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
+// for applying drags once a frame
+import javax.swing.Timer;
 
 /**
  * A JPanel which holds a Lines game
@@ -35,10 +53,39 @@ public class LinesPanel extends JPanel {
 	 * the message which provides important information about the current game
 	 */
 	private JLabel infoMessage;
+	/**
+	 * the message which warns that the current Grid can no longer be won
+	 */
+	private JLabel deadMessage;
 	/**
 	 * whether the game is actively being played
 	 */
 	private boolean active;
+	/**
+	 * whether forced moves are drawn automatically after each click
+	 */
+	private boolean autoFill;
+	/**
+	 * what draws Paths as the mouse is dragged
+	 */
+	private final MyMouseMotionListener dragger;
+	/**
+	 * the newest save not yet written, or null if there is none
+	 */
+	private final AtomicReference<byte[]> pendingSave;
+	/**
+	 * the thread which writes saves, one at a time
+	 */
+	private final ExecutorService saver;
+	
+	/**
+	 * where the game in progress is saved, after every click
+	 */
+	private static final File SAVE_FILE = new File("src/lines/save.dat");
+	/**
+	 * the # of milliseconds between applying drags (about 60 times a second)
+	 */
+	private static final int FRAME_MILLIS = 16;
 	
 	/**
 	 * Sets up the Grid for Level #0 and the winMessage
@@ -55,25 +102,114 @@ public class LinesPanel extends JPanel {
 		
 		// set up the info-message with game instructions
 		infoMessage = new JLabel("<html>Click on a tile to extend/start a path into it<br>"
+				+ "Or drag from an end-tile or the end of a path to draw it, and back over a path to undraw it<br>"
 				+ "If multiple paths could be extended, the one most recently modified is used<br>"
 				+ "To delete a path, click on either end-tile (the ones with circles)<br>"
 				+ "To back a path up to a certain point, click on a tile in the middle of it<br>"
 				+ "Your goal is to connect all of the end-tiles and cover all tiles with your paths<br>"
-				+ "Black tiles cannot have paths go through them; paths need not go through to win"
+				+ "Black tiles cannot have paths go through them; paths need not go through to win<br>"
+				+ "Press A to turn on/off automatically drawing paths which can only go one way<br>"
+				+ "Press Z to undo a move, and Y to redo it<br>"
 				+ "Click once done to progress to the next level</html>");
-		infoMessage.setBounds(0, 0, 500, 250);
+		infoMessage.setBounds(0, 0, 560, 290);
 		infoMessage.setVisible(true);
 		add(infoMessage);
 		
-		// start listening to mouse clicks, and make it visible
+		// set up the dead-end warning, it is invisible until a move makes the Grid unwinnable
+		deadMessage = new JLabel();
+		deadMessage.setForeground(Color.RED);
+		deadMessage.setVisible(false);
+		add(deadMessage);
+		
+		// start listening to mouse clicks, drags, and key presses, and make it visible
 		addMouseListener(new MyMouseListener());
+		dragger = new MyMouseMotionListener();
+		addMouseMotionListener(dragger);
+		addKeyListener(new MyKeyListener());
+		setFocusable(true);
 		setVisible(true);
 		
-		// don't start the game yet
+		// don't start the game yet, or auto-fill
 		active = false;
+		autoFill = false;
 		grid = null;
 		// curLevel is -1 (so nextLevel will use level #0)
 		curLevel = -1;
+		
+		// saves are written by a thread of their own, which doesn't keep the program running
+		pendingSave = new AtomicReference<byte[]>();
+		saver = Executors.newSingleThreadExecutor(task -> {
+			Thread thread = new Thread(task, "Lines saver");
+			thread.setDaemon(true);
+			return thread;
+		});
+		
+		// but if there is a saved game, carry on with it
+		if (SAVE_FILE.exists()) restore();
+	}
+	
+	/**
+	 * Saves the game in progress to SAVE_FILE, if there is one
+	 * <br>
+	 * Only encoding the game happens here; the file is written by the saver thread. A save
+	 * made while another is waiting replaces it, so a burst of moves only writes the last one.
+	 */
+	public void save() {
+		if (!active || grid == null) return;
+		// the saver only has to be asked if it didn't have a save waiting already
+		if (pendingSave.getAndSet(new SavedGame(curLevel, grid).toBytes()) == null)
+			saver.execute(this::writePendingSave);
+	}
+	
+	/**
+	 * Saves the game in progress, and waits for every save to be written (for when the game closes)
+	 */
+	public void saveAndWait() {
+		save();
+		try {
+			// the saver runs tasks in order, so once this one runs every save before it is written
+			saver.submit(() -> {}).get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e) {
+			// an empty task can't throw
+		}
+	}
+	
+	/**
+	 * Writes the newest save, if it hasn't been written yet (on the saver thread)
+	 */
+	private void writePendingSave() {
+		byte[] data = pendingSave.getAndSet(null);
+		if (data == null) return;
+		try {
+			SavedGame.write(data, SAVE_FILE);
+		}
+		catch (IOException e) {
+			System.out.println("Something went wrong saving the game to " + SAVE_FILE);
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Restores the game saved in SAVE_FILE (or leaves the game unstarted, if it can't be read)
+	 */
+	private void restore() {
+		try {
+			SavedGame saved = SavedGame.read(SAVE_FILE, levels);
+			active = true;
+			startLevel(saved.getLevel(), saved.getGrid());
+			showIfDead();
+		}
+		catch (IOException e) {
+			System.out.println("Something went wrong with the I/O reading the saved game");
+			e.printStackTrace();
+		}
+		catch (IllegalArgumentException e) {
+			System.out.println("The saved game doesn't match the levels, so it was ignored: " + e.getMessage());
+		}
 	}
 	
 	/**
@@ -82,17 +218,46 @@ public class LinesPanel extends JPanel {
 	private void nextLevel() {
 		// if this is the last level, show the win-message
 		if (curLevel == levels.length - 1) winMessage.setVisible(true);
-		// otherwise, move to next level
-		else {
-			// increment level
-			++curLevel;
-			// keep re-generating grid until it isn't already done
-			do {grid = new Grid(levels[curLevel]);}
-			while (grid.isComplete());
-			// reset info-message to a level indicator
-			infoMessage.setBounds((grid.getCols() + 1) * Tile.SIZE, 100, 50, 25);
-			infoMessage.setText("Level " + (curLevel + 1));
-		}
+		// otherwise, move to next level (a new Grid always has unconnected end-points)
+		else startLevel(curLevel + 1, new Grid(levels[curLevel + 1]));
+	}
+	
+	/**
+	 * Starts playing a Level
+	 * @param level the index of the Level
+	 * @param grid the Grid to play it on
+	 */
+	private void startLevel(int level, Grid grid) {
+		curLevel = level;
+		this.grid = grid;
+		grid.setPropagating(autoFill);
+		grid.setUndoable(true);
+		// reset info-message to a level indicator
+		infoMessage.setBounds((grid.getCols() + 1) * Tile.SIZE, 100, 50, 25);
+		infoMessage.setText("Level " + (curLevel + 1));
+		// and put the dead-end warning below it, hidden
+		deadMessage.setBounds((grid.getCols() + 1) * Tile.SIZE, 130, 400, 25);
+		deadMessage.setVisible(false);
+		// a new Grid has to be painted whole
+		repaint();
+	}
+	
+	/**
+	 * Shows or hides the dead-end warning, depending on whether the Grid can still be won
+	 */
+	private void showIfDead() {
+		// warn as soon as a move makes the Grid unwinnable
+		String dead = grid.whyDead();
+		deadMessage.setText(dead == null ? "" : "Dead end: " + dead);
+		deadMessage.setVisible(dead != null);
+	}
+	
+	/**
+	 * Repaints only the Tiles which changed since the Grid was last drawn
+	 */
+	private void repaintChanges() {
+		Rectangle changed = grid.getChangedBounds();
+		if (changed != null) repaint(changed);
 	}
 	
 	public void paintComponent(Graphics window) {
@@ -135,15 +300,20 @@ public class LinesPanel extends JPanel {
 						
 					// Tile is not on any path yet
 					
-					// if there is an active Path
-					else if (grid.getActivePath() != null) {
-						// try to extend it by this Tile
-						try {grid.getActivePath().extend(tile);}
-						// if that failed (since it couldn't be extended), try to put on any path
-						catch (InvalidPathException pathE) {grid.tryToPutOnPath(tile);}
-					}
-					// if there is not active path, just try to put on any path
+					// if there is an active Path that can be extended by this Tile, extend it
+					else if (grid.canExtend(grid.getActivePath(), tile).isOk())
+						grid.getActivePath().extend(tile);
+					// if not (or there is no active path), try to put on any path
 					else grid.tryToPutOnPath(tile);
+					
+					// draw any moves this forced (if auto-filling), and undo them along with the click
+					grid.propagate();
+					grid.endMove();
+					showIfDead();
+					// saving only takes a few bytes, so do it every move
+					save();
+					// and only the Tiles the move changed need painting
+					repaintChanges();
 				}
 			}
 			// or if not playing
@@ -151,21 +321,24 @@ public class LinesPanel extends JPanel {
 				// move to next level, currently playing
 				active = true;
 				nextLevel();
+				repaint();
 			}
 			
-			// since something could've happened, repaint
-			repaint();
+			// make sure key presses come here
+			requestFocusInWindow();
 		}
 	
 		/**
-		 * Ignore mousePressed events
+		 * Start a drag (which does nothing unless the mouse moves to another Tile)
 		 */
-		public void mousePressed(MouseEvent e) {}
+		public void mousePressed(MouseEvent e) {
+			if (active && grid != null) dragger.press(e.getY() / Tile.SIZE, e.getX() / Tile.SIZE);
+		}
 	
 		/**
-		 * Ignore mouseReleased events
+		 * Finish a drag
 		 */
-		public void mouseReleased(MouseEvent e) {}
+		public void mouseReleased(MouseEvent e) {dragger.release();}
 	
 		/**
 		 * Ignore mouseEntered events
@@ -177,4 +350,271 @@ public class LinesPanel extends JPanel {
 		 */
 		public void mouseExited(MouseEvent e) {}
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * A MouseMotionListener which draws a Path along a drag: from an unused EndTile, the end
+	 * of a Path, or the middle of a Path (cutting it back first). Dragging back over the Path
+	 * undraws it, and dragging into the other end (or the other Path of the same color) finishes it.
+	 * <br>
+	 * Drag events only note the Tile the mouse is over, and the Tiles noted are drawn through
+	 * once a frame, so a burst of events costs one repaint. The mouse can skip over Tiles
+	 * when it moves fast, so the Path is drawn through the Tiles in between.
+	 * A whole drag is one move, for undoing.
+	 * @author faith
+	 */
+	private class MyMouseMotionListener implements MouseMotionListener {
+		/**
+		 * the Grid being drawn on, or null if not dragging
+		 */
+		private Grid dragGrid;
+		/**
+		 * the Path being drawn, or null if it hasn't been started (or was undrawn)
+		 */
+		private Path path;
+		/**
+		 * the EndTile the Path starts from, while path is null
+		 */
+		private EndTile start;
+		/**
+		 * the cell the Path will be drawn on from, or -1 if it can't be drawn any more
+		 */
+		private int head;
+		/**
+		 * whether the Path has to be cut back to head before it is drawn on
+		 */
+		private boolean cut;
+		/**
+		 * whether the drag has changed the Grid
+		 */
+		private boolean moved;
+		/**
+		 * the cells dragged over since the last frame, in order
+		 */
+		private int[] dragged;
+		/**
+		 * the # of cells in dragged
+		 */
+		private int draggedCount;
+		/**
+		 * what applies the cells dragged over, once a frame
+		 */
+		private final Timer timer;
+		
+		/**
+		 * Initializes a MyMouseMotionListener, not dragging
+		 */
+		private MyMouseMotionListener() {
+			dragGrid = null;
+			head = -1;
+			dragged = new int[16];
+			draggedCount = 0;
+			// started by the first drag event of a frame, so the rest of the frame's events wait for it
+			timer = new Timer(FRAME_MILLIS, e -> applyDrags());
+			timer.setRepeats(false);
+		}
+		
+		/**
+		 * Starts a drag from a Tile, if a Path can be drawn from it
+		 * @param row the row of the Tile
+		 * @param col the column of the Tile
+		 */
+		private void press(int row, int col) {
+			dragGrid = grid;
+			head = -1;
+			moved = false;
+			draggedCount = 0;
+			if (!grid.isValidTile(row, col)) return;
+			
+			Tile tile = grid.getTile(row, col);
+			int cell = grid.getCells().index(row, col);
+			Path on = grid.findPath(tile);
+			// an unused EndTile starts a new Path
+			if (on == null) {
+				if (tile.getKind() != Cells.END) return;
+				path = null;
+				start = (EndTile) tile;
+			}
+			// a Path is drawn on from its end, or from the middle once it is cut back
+			else {
+				if (on.isComplete() && on.lastCell() == cell) return;
+				path = on;
+				cut = on.lastCell() != cell;
+			}
+			head = cell;
+		}
+		
+		public void mouseDragged(MouseEvent e) {
+			int row = e.getY() / Tile.SIZE;
+			int col = e.getX() / Tile.SIZE;
+			if (head < 0 || dragGrid != grid || !grid.isValidTile(row, col)) return;
+			
+			// only note each Tile once, however many events there are on it
+			int cell = grid.getCells().index(row, col);
+			if (cell == (draggedCount == 0 ? head : dragged[draggedCount - 1])) return;
+			if (draggedCount == dragged.length) dragged = Arrays.copyOf(dragged, draggedCount * 2);
+			dragged[draggedCount++] = cell;
+			if (!timer.isRunning()) timer.start();
+		}
+		
+		/**
+		 * Ignore mouseMoved events
+		 */
+		public void mouseMoved(MouseEvent e) {}
+		
+		/**
+		 * Draws the Path through every cell dragged over since the last frame, and repaints once
+		 */
+		private void applyDrags() {
+			if (dragGrid != grid) head = -1;
+			for (int i = 0; i < draggedCount && head >= 0; ++i) dragTo(dragged[i]);
+			draggedCount = 0;
+			if (moved) {
+				showIfDead();
+				repaintChanges();
+			}
+		}
+		
+		/**
+		 * Finishes a drag, making any forced moves and ending the move (if the drag changed anything)
+		 */
+		private void release() {
+			if (dragGrid == null) return;
+			// draw whatever was dragged over since the last frame
+			timer.stop();
+			applyDrags();
+			if (moved) {
+				// (unless the drag won the level, and the next one has started)
+				if (dragGrid == grid) {
+					grid.propagate();
+					grid.endMove();
+					showIfDead();
+					repaintChanges();
+				}
+				save();
+			}
+			dragGrid = null;
+			head = -1;
+		}
+		
+		/**
+		 * Draws the Path from head to a cell, through the cells in between if it isn't next to head
+		 * (one step at a time, along whichever of the row or column is further off)
+		 * @param cell the # of the cell
+		 */
+		private void dragTo(int cell) {
+			Cells cells = grid.getCells();
+			int row = cells.getRow(cell);
+			int col = cells.getCol(cell);
+			while (head >= 0 && head != cell) {
+				int rowOff = row - cells.getRow(head);
+				int colOff = col - cells.getCol(head);
+				int next = Math.abs(colOff) >= Math.abs(rowOff) ? head + Integer.signum(colOff)
+						: head + Integer.signum(rowOff) * cells.getCols();
+				// a Tile the Path can't go to stops it, until the mouse comes back
+				if (!step(next)) return;
+			}
+		}
+		
+		/**
+		 * Draws the Path from head to a cell next to it
+		 * @param cell the # of the cell
+		 * @return whether the Path could go there
+		 */
+		private boolean step(int cell) {
+			Tile next = grid.tileAt(cell);
+			// if the Path was undone or joined into another, stop drawing
+			if (path != null && grid.getPathFrom(path.getId()) != path) {
+				head = -1;
+				return false;
+			}
+			// cut the Path back to where the drag started
+			if (cut) {
+				cut = false;
+				moved = true;
+				if (!path.backUpTo(grid.tileAt(head))) {
+					// which removes the whole Path, if it started at the pressed EndTile
+					start = (EndTile) grid.tileAt(head);
+					path = null;
+				}
+			}
+			
+			// going back over the Path undraws it, all the way back to its EndTile
+			if (path != null && path.containsTile(next)) {
+				if (!path.backUpTo(next)) {
+					start = (EndTile) next;
+					path = null;
+				}
+			}
+			else if (path == null) {
+				if (!grid.canStart(start, next).isOk()) return false;
+				path = grid.startPath(start, Tile.sideBetween(start, next));
+			}
+			else {
+				// reaching the end of the other Path of this color joins them, and finishes the drag
+				Path other = grid.findPath(next);
+				if (other != null && other.lastCell() == cell && grid.canConnect(path, other).isOk()) {
+					path = path.connect(other);
+					moved = true;
+					head = -1;
+					return true;
+				}
+				if (!grid.canExtend(path, next).isOk()) return false;
+				path.extend(next);
+			}
+			
+			moved = true;
+			// the Path being drawn is active, like one being clicked on
+			if (path != null) grid.setActivePath(path);
+			// reaching the other EndTile finishes the drag
+			head = path != null && path.isComplete() ? -1 : cell;
+			return true;
+		}
+	}
+	
+	/**
+	 * A KeyListener with keyPressed overridden for Lines
+	 * @author faith
+	 */
+	private class MyKeyListener implements KeyListener {
+		public void keyPressed(KeyEvent e) {
+			// A turns auto-filling forced moves on or off
+			if (e.getKeyCode() == KeyEvent.VK_A) {
+				autoFill = !autoFill;
+				if (grid != null) {
+					// turning it on fills in whatever is already forced
+					grid.setPropagating(autoFill);
+					grid.propagate();
+					grid.endMove();
+					showIfDead();
+					repaintChanges();
+				}
+			}
+			// Z undoes the last move, and Y redoes it
+			else if (e.getKeyCode() == KeyEvent.VK_Z && active && grid != null) {
+				if (grid.undo()) afterUndo();
+			}
+			else if (e.getKeyCode() == KeyEvent.VK_Y && active && grid != null) {
+				if (grid.redo()) afterUndo();
+			}
+		}
+		
+		/**
+		 * Updates the game after a move is undone or redone
+		 */
+		private void afterUndo() {
+			showIfDead();
+			save();
+			repaintChanges();
+		}
+	
+		/**
+		 * Ignore keyReleased events
+		 */
+		public void keyReleased(KeyEvent e) {}
+	
+		/**
+		 * Ignore keyTyped events
+		 */
+		public void keyTyped(KeyEvent e) {}
+	}
+}
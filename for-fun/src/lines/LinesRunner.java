@@ -4,6 +4,10 @@ package lines;
 import java.awt.Component;
 import javax.swing.JFrame;
 
+// for saving the game when the window closes
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
 /**
  * Runs a Lines game when instantiated
  * @author faith
@@ -23,6 +27,13 @@ public class LinesRunner extends JFrame {
 		((Component) game).setFocusable(true);
 		getContentPane().add(game);
 
+		// save the game in progress before closing
+		addWindowListener(new WindowAdapter() {
+			public void windowClosing(WindowEvent e) {
+				game.saveAndWait();
+			}
+		});
+		
 		// make it visible and closable
 		setVisible(true);
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
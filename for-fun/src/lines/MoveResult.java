@@ -0,0 +1,51 @@
+package lines;
+
+/**
+ * The outcome of checking a move on a Grid, so that moves can be tried
+ * without throwing (and catching) an InvalidPathException for every miss
+ * @author faith
+ */
+public enum MoveResult {
+	/**
+	 * the move can be made
+	 */
+	OK,
+	/**
+	 * there is no Path to move with
+	 */
+	NO_PATH,
+	/**
+	 * the Path is already complete, so cannot be added to
+	 */
+	PATH_COMPLETE,
+	/**
+	 * the EndTile already has a Path from or to it
+	 */
+	END_USED,
+	/**
+	 * the Tile is a different color than the Path
+	 */
+	WRONG_COLOR,
+	/**
+	 * the Tile is already on this Path
+	 */
+	ON_PATH,
+	/**
+	 * the Tile is already on another Path
+	 */
+	OCCUPIED,
+	/**
+	 * the Tile does not share a side with the end of the Path
+	 */
+	NOT_ADJACENT,
+	/**
+	 * a path cannot go out of the end of the Path, or into the Tile, on their shared side
+	 */
+	BLOCKED;
+
+	/**
+	 * Checks if this result allows the move
+	 * @return whether this is OK
+	 */
+	public boolean isOk() {return this == OK;}
+}
@@ -0,0 +1,200 @@
+package lines;
+
+// for copying and remembering colors
+import java.util.Arrays;
+import java.util.HashSet;
+
+// for the colors themselves
+import java.awt.Color;
+
+/**
+ * Generates as many well-separated path colors as are needed, in O(# of colors)
+ * <ul>
+ * 	<li>hue and lightness in OKLCh (a perceptual color space) follow the 2-D version of
+ * 	golden ratio spacing (steps of 1 / plastic number and its square), so each new color
+ * 	lands in the biggest gap left by the previous ones</li>
+ * 	<li>chroma is as strong as the sRGB gamut allows, up to a limit, so no color
+ * 	is close to the greyish-brown backgrounds of Lines and Pipes</li>
+ * </ul>
+ * The sequence is fixed (color i is always the same), so the colors are computed once,
+ * remembered, and shared between threads.
+ * @author faith
+ */
+public final class Palette {
+	/**
+	 * the colors computed so far (only the first count are filled in)
+	 */
+	private static Color[] colors = new Color[16];
+	/**
+	 * the # of colors computed so far
+	 */
+	private static int count = 0;
+	/**
+	 * the position in the hue/lightness sequence of the next color to compute
+	 */
+	private static int next = 0;
+	/**
+	 * the RGB values of the colors computed so far, so none repeat
+	 */
+	private static final HashSet<Integer> used = new HashSet<Integer>();
+
+	/**
+	 * the fraction of the color wheel between consecutive hues (1 / plastic number)
+	 */
+	private static final double HUE_STEP = 0.7548776662466927;
+	/**
+	 * the fraction of the lightness range between consecutive colors (1 / plastic number ^ 2)
+	 */
+	private static final double LIGHTNESS_STEP = 0.5698402909980532;
+	/**
+	 * the darkest OKLab lightness used
+	 */
+	private static final double MIN_LIGHTNESS = 0.48;
+	/**
+	 * the range of OKLab lightnesses used
+	 */
+	private static final double LIGHTNESS_RANGE = 0.30;
+	/**
+	 * the strongest OKLab chroma used
+	 */
+	private static final double MAX_CHROMA = 0.16;
+
+	/**
+	 * Never initialize a Palette, it only has static methods
+	 */
+	private Palette() {}
+
+	/**
+	 * Gets the first few colors of the palette
+	 * @param number the # of colors needed
+	 * @return that many well-separated colors, always the same for the same number
+	 */
+	public static synchronized Color[] colors(int number) {
+		if (number < 0) throw new IllegalArgumentException("Can't have " + number + " colors");
+		ensure(number);
+		return Arrays.copyOf(colors, number);
+	}
+
+	/**
+	 * Gets one color of the palette
+	 * @param index which color to get
+	 * @return the color, always the same for the same index
+	 */
+	public static synchronized Color get(int index) {
+		if (index < 0) throw new IllegalArgumentException("Invalid color #" + index);
+		ensure(index + 1);
+		return colors[index];
+	}
+
+	/**
+	 * Makes sure enough colors have been computed
+	 * @param number the # of colors needed
+	 */
+	private static void ensure(int number) {
+		// grow the array of colors if it is too short
+		if (number > colors.length) colors = Arrays.copyOf(colors, Math.max(number, colors.length * 2));
+
+		// compute colors until there are enough
+		while (count < number) {
+			// the next position in each sequence
+			double hue = fraction(next * HUE_STEP) * 2 * Math.PI;
+			double lightness = MIN_LIGHTNESS + LIGHTNESS_RANGE * fraction(0.5 + next * LIGHTNESS_STEP);
+			++next;
+
+			Color color = fromOkLch(lightness, maxChroma(lightness, hue), hue);
+			// only use a color once (rounding to RGB can make far-apart positions the same)
+			if (used.add(color.getRGB())) colors[count++] = color;
+		}
+	}
+
+	/**
+	 * Finds the strongest chroma (up to MAX_CHROMA) which is still a real sRGB color
+	 * @param lightness the OKLab lightness
+	 * @param hue the OKLCh hue, in radians
+	 * @return the chroma to use
+	 */
+	private static double maxChroma(double lightness, double hue) {
+		// if the strongest is allowed, use it
+		if (inGamut(lightness, MAX_CHROMA, hue)) return MAX_CHROMA;
+
+		// otherwise binary search between grey (always real) and too strong
+		double low = 0;
+		double high = MAX_CHROMA;
+		for (int i = 0; i < 12; ++i) {
+			double mid = (low + high) / 2;
+			if (inGamut(lightness, mid, hue)) low = mid;
+			else high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Checks if an OKLCh color is a real sRGB color
+	 * @param lightness the OKLab lightness
+	 * @param chroma the OKLCh chroma
+	 * @param hue the OKLCh hue, in radians
+	 * @return whether each of its linear RGB values is between 0 and 1
+	 */
+	private static boolean inGamut(double lightness, double chroma, double hue) {
+		for (double value : toLinearRgb(lightness, chroma, hue))
+			if (value < 0 || value > 1) return false;
+		return true;
+	}
+
+	/**
+	 * Converts an OKLCh color to an sRGB Color
+	 * @param lightness the OKLab lightness
+	 * @param chroma the OKLCh chroma
+	 * @param hue the OKLCh hue, in radians
+	 * @return the Color
+	 */
+	private static Color fromOkLch(double lightness, double chroma, double hue) {
+		double[] rgb = toLinearRgb(lightness, chroma, hue);
+		return new Color(toByte(rgb[0]), toByte(rgb[1]), toByte(rgb[2]));
+	}
+
+	/**
+	 * Converts an OKLCh color to linear (not gamma-encoded) sRGB
+	 * @param lightness the OKLab lightness
+	 * @param chroma the OKLCh chroma
+	 * @param hue the OKLCh hue, in radians
+	 * @return the red, green, and blue values, 0-1 if the color is real
+	 */
+	private static double[] toLinearRgb(double lightness, double chroma, double hue) {
+		// OKLCh to OKLab
+		double a = chroma * Math.cos(hue);
+		double b = chroma * Math.sin(hue);
+
+		// OKLab to LMS cone responses
+		double l = Math.pow(lightness + 0.3963377774 * a + 0.2158037573 * b, 3);
+		double m = Math.pow(lightness - 0.1055613458 * a - 0.0638541728 * b, 3);
+		double s = Math.pow(lightness - 0.0894841775 * a - 1.2914855480 * b, 3);
+
+		// LMS to linear sRGB
+		return new double[] {
+				4.0767416621 * l - 3.3077115913 * m + 0.2309699292 * s,
+				-1.2684380046 * l + 2.6097574011 * m - 0.3413193965 * s,
+				-0.0041960863 * l - 0.7034186147 * m + 1.7076147010 * s
+		};
+	}
+
+	/**
+	 * Gamma-encodes a linear sRGB value
+	 * @param linear the value, 0-1
+	 * @return the encoded value, 0-255
+	 */
+	private static int toByte(double linear) {
+		double clamped = Math.min(1, Math.max(0, linear));
+		double encoded = clamped <= 0.0031308 ? 12.92 * clamped : 1.055 * Math.pow(clamped, 1 / 2.4) - 0.055;
+		return (int) Math.round(encoded * 255);
+	}
+
+	/**
+	 * Gets the fractional part of a number
+	 * @param value the number
+	 * @return value minus its floor
+	 */
+	private static double fraction(double value) {
+		return value - Math.floor(value);
+	}
+}
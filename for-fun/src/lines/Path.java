@@ -1,12 +1,17 @@
 package lines;
 
-// for arrays that can change size
-import java.util.ArrayList;
+// for growing the stack of cells
+import java.util.Arrays;
 // for passing colors between Tiles
 import java.awt.Color;
 
 /**
  * A path on a Lines grid, with Tiles an a color
+ * <br>
+ * The cells are kept as a stack, and the Grid's owner map says which Path each cell is on, so
+ * extending and backing up (to any Tile) cost O(1) per Tile added or removed. Connecting is not
+ * a splice: every cell records which side its path comes in and goes out of, so the Tiles of the
+ * shorter Path have to be reversed and handed over one by one, costing O(shorter Path).
  * @author faith
  *
  */
@@ -16,13 +21,22 @@ public class Path {
 	 */
 	private Grid grid;
 	/**
-	 * the Tiles that are on this Path
+	 * the cells of the Tiles that are on this Path, in order from the starting EndTile,
+	 * as a stack (which Path each cell is on is indexed by the Grid's owner map)
 	 */
-	private ArrayList<Tile> tiles;
+	private int[] cells;
+	/**
+	 * the # of Tiles on this Path (the used part of cells)
+	 */
+	private int length;
 	/**
 	 * the color of this Path
 	 */
 	private Color color;
+	/**
+	 * the index of this Path's starting EndTile in its Grid (see Grid.endIndex)
+	 */
+	private final int id;
 	
 	/**
 	 * Attempts to create a path between a starting Tile and another
@@ -32,14 +46,53 @@ public class Path {
 	 * @throws InvalidPathException if next cannot be on a path with start
 	 */
 	public Path(EndTile start, Tile next, Grid grid) throws InvalidPathException {
-		// initialize the list of Tiles with start
-		tiles = new ArrayList<Tile>();
-		tiles.add(start);
+		this(grid.cellOf(start), grid.cellOf(next), grid);
+	}
+	
+	/**
+	 * Attempts to create a path between a starting cell and another
+	 * @param start the # of the END cell to start the path with
+	 * @param next the # of the cell to use as the 2nd on the path
+	 * @param grid the Grid that this Path is on
+	 * @throws InvalidPathException if next cannot be on a path with start
+	 */
+	Path(int start, int next, Grid grid) throws InvalidPathException {
+		// check before taking the start, which may already be owned by another Path
+		this(checkStart(start, next, grid), grid);
+		// the Grid allowed the step, so this connects
+		append(next);
+	}
+	
+	/**
+	 * Checks that a Path could be started, before anything is changed
+	 * @param start the # of the cell to start the path with
+	 * @param next the # of the cell to use as the 2nd on the path
+	 * @param grid the Grid that the Path would be on
+	 * @return start
+	 * @throws InvalidPathException if the Grid does not allow the Path (see Grid.canStart)
+	 */
+	private static int checkStart(int start, int next, Grid grid) throws InvalidPathException {
+		if (!grid.canStart(start, next).isOk()) throw new InvalidPathException(grid.tileAt(start), grid.tileAt(next));
+		return start;
+	}
+	
+	/**
+	 * Creates a path of just its starting cell, for putting a Path back one cell at a time
+	 * (it has to be extended before it is a proper Path)
+	 * @param start the # of the END cell to start the path with
+	 * @param grid the Grid that this Path is on
+	 */
+	Path(int start, Grid grid) {
 		this.grid = grid;
 		// paths are colored by their starting tiles
-		color = start.getColor();
-		// attempt to extend start by next
-		extend(next);
+		color = grid.getCells().getColor(start);
+		id = grid.endIndex(start);
+		// initialize the stack of Tiles with start
+		cells = new int[8];
+		length = 0;
+		push(start);
+		// this Path owns its start, so that it cannot loop back onto it
+		grid.setOwner(start, id);
 	}
 
 	/**
@@ -47,50 +100,88 @@ public class Path {
 	 * @param next the Tile to extend by
 	 * @throws InvalidPathException if this extension is not possible
 	 */
-	public void extend(Tile next) throws InvalidPathException {
-		// only attempt an extension with a blank Tile (no path) or same color Tile (end dot)
-		// also, do not extend by a Tile already on the path
-		if ((next.getColor() == null || next.getColor().equals(color)) && !tiles.contains(next)) {
-			// attempt to connect the last Tile to this new Tile
-			Tile.connect(lastTile(), next);
-			// if no exception thrown, set next Tile's color and add it
-			next.setColor(color);
-			tiles.add(next);
-		}
+	public void extend(Tile next) throws InvalidPathException {extend(grid.cellOf(next));}
+	
+	/**
+	 * Extends the Path by adding a cell to the end
+	 * @param next the # of the cell to extend by
+	 * @throws InvalidPathException if this extension is not possible
+	 */
+	void extend(int next) throws InvalidPathException {
+		// only attempt an extension the Grid allows (see Grid.canExtend)
+		if (grid.canExtend(this, next).isOk()) append(next);
 		// if above conditions not fulfilled, this is an automatic invalid path
-		else throw new InvalidPathException(lastTile(), next);
+		else throw new InvalidPathException(lastTile(), grid.tileAt(next));
+	}
+	
+	/**
+	 * Adds a cell to the end, without checking that the Grid allows it
+	 * @param next the # of the cell to add
+	 * @throws InvalidPathException if the last cell and next can't be connected
+	 */
+	void append(int next) throws InvalidPathException {
+		// attempt to connect the last cell to this new cell
+		link(lastCell(), next);
+		// if no exception thrown, set next cell's color (EndTiles and BlockTiles keep theirs) and add it
+		Cells board = grid.getCells();
+		if (board.getKind(next) == Cells.PATH) board.setColor(next, color);
+		push(next);
+		grid.setOwner(next, id);
+	}
+	
+	/**
+	 * Connects two cells, like Tile.connect but without making Tiles for them
+	 * (so nothing is changed unless both can be connected)
+	 * @param from the # of the cell to make a path from
+	 * @param to the # of the cell to make a path to
+	 * @throws InvalidPathException if it is impossible to connect the cells
+	 */
+	private void link(int from, int to) throws InvalidPathException {
+		Cells board = grid.getCells();
+		// find connecting side, which both cells must let the path through
+		byte side = board.sideBetween(from, to);
+		if (side == Tile.NOT_SET) throw new InvalidPathException(grid.tileAt(from), grid.tileAt(to));
+		if (!board.canSetOut(from, side)) throw new InvalidPathException(grid.tileAt(from), side);
+		if (!board.canSetIn(to, Tile.oppoSide(side))) throw new InvalidPathException(Tile.oppoSide(side), grid.tileAt(to));
+		board.setOut(from, side);
+		board.setIn(to, Tile.oppoSide(side));
 	}
 	
 	/**
 	 * Connect this Path to another Path
+	 * <br>
+	 * the longer of the two Paths is kept, and the shorter is reversed onto its end
+	 * (so only the shorter Path's Tiles are touched, in O(shorter) time) and removed from the Grid
 	 * @param connect a Path to connect to
+	 * @return the joined Path, which is connect (not this) if connect was longer
 	 * @throws InvalidPathException if the connection fails
 	 */
-	public void connect(Path connect) throws InvalidPathException {
-		// only connect same-color Paths
-		if (connect.getColor().equals(color)) {
-			Tile last = connect.lastTile();
-			try {
-				// make sure that this lastTiles can connect safely
-				connect.backUp();
-				extend(last);
-			}
-			catch (InvalidPathException e) {
-				// if they can't, reset the connect-path and throw exception
-				connect.extend(last);
-				throw new InvalidPathException(e);
+	public Path connect(Path connect) throws InvalidPathException {
+		// only connect Paths that the Grid allows (same color, ends touching)
+		if (grid.canConnect(this, connect).isOk()) {
+			// choose which Path to keep, and which to reverse onto it
+			Path into = length >= connect.length ? this : connect;
+			Path from = into == this ? connect : this;
+			
+			// the last Tile of from will be the first to join into, so it must have a path out instead of in
+			int seam = from.lastCell();
+			grid.getCells().reverse(seam);
+			link(into.lastCell(), seam);
+			
+			// walk from backwards, handing each Tile over (already-reversed seam first)
+			for (int i = from.length - 1; i >= 0; --i) {
+				int cell = from.cells[i];
+				if (i != from.length - 1) grid.getCells().reverse(cell);
+				grid.noteEdit(from.id, cell, false);
+				into.push(cell);
+				grid.setOwner(cell, into.id);
 			}
 			
-			// save Tiles of connect
-			ArrayList<Tile> connectTiles = connect.getTiles();
-			// remove connect
-			grid.removePath(connect);
-			// add each Tile to current path backwards
-			for (int i = connectTiles.size() - 1; i >= 0; --i)
-				extend(connectTiles.get(i));
-				
+			// from is no longer a Path, but its Tiles are now into's, so keep them as-is
+			grid.detachPath(from);
+			return into;
 		}
-		// attempting to connect different-color Paths is invalid
+		// attempting any other connection is invalid
 		else throw new InvalidPathException(lastTile(), connect.lastTile());
 	}
 	
@@ -99,21 +190,53 @@ public class Path {
 	 */
 	public void backUp() {
 		// if there will be at least 2 Tiles left
-		if (tiles.size() > 2) {
-			// remove and clear last Tile
-			tiles.remove(tiles.size() - 1).clear();
-			// the new last Tile has no path out
-			lastTile().removeOut();
-		}
+		if (length > 2) removeLast();
 		// or if too few Tiles left, just remove this Path
 		else grid.removePath(this);
 	}
 	
 	/**
-	 * Allows Paths to access each other's Tiles
-	 * @return a copy of this.tiles
+	 * Removes the last Tile, removing this Path from the Grid if it was the only one
+	 * (which backUp won't do, so a Path can be taken back one cell at a time)
+	 */
+	void removeLast() {
+		// remove and clear last Tile
+		int cell = cells[--length];
+		grid.getCells().clear(cell);
+		grid.setOwner(cell, Grid.NO_PATH);
+		grid.noteEdit(id, cell, false);
+		// the new last Tile has no path out
+		if (length > 0) grid.getCells().setOut(lastCell(), Tile.NOT_SET);
+		else grid.detachPath(this);
+	}
+	
+	/**
+	 * Backs a Path up until a Tile on it is the last one
+	 * (removing the whole Path if fewer than 2 Tiles would be left)
+	 * @param tile the Tile to keep as the last one
+	 * @return whether this Path is still on the Grid
+	 */
+	public boolean backUpTo(Tile tile) {
+		// only back up to a Tile on this Path, else the whole Path would go
+		if (!containsTile(tile)) throw new IllegalArgumentException(tile + " is not on " + this);
+		
+		// back up one Tile at a time, stopping if that removes the Path
+		int keep = grid.cellOf(tile);
+		while (cells[length - 1] != keep) {
+			if (length <= 2) {
+				grid.removePath(this);
+				return false;
+			}
+			backUp();
+		}
+		return true;
+	}
+	
+	/**
+	 * Gets this.id
+	 * @return the index of this Path's starting EndTile in its Grid
 	 */
-	private ArrayList<Tile> getTiles() {return new ArrayList<Tile>(tiles);}
+	int getId() {return id;}
 	
 	/**
 	 * Gets this.color
@@ -123,41 +246,78 @@ public class Path {
 	
 	/**
 	 * Gets the last Tile added to the Path
-	 * @return the last element in tiles
+	 * @return the Tile of the top cell in cells
 	 */
-	public Tile lastTile() {return tiles.get(tiles.size() - 1);}
+	public Tile lastTile() {return grid.tileAt(cells[length - 1]);}
+	
+	/**
+	 * Gets the cell of the last Tile added to the Path
+	 * @return the top cell in cells
+	 */
+	int lastCell() {return cells[length - 1];}
+	
+	/**
+	 * Gets this.length
+	 * @return the # of Tiles on this Path
+	 */
+	int getLength() {return length;}
+	
+	/**
+	 * Gets the cell of a Tile on this Path
+	 * @param index the position of the Tile on this Path, 0 for the starting EndTile
+	 * @return the # of the cell
+	 */
+	int getCell(int index) {return cells[index];}
+	
+	/**
+	 * Adds a cell to the top of the stack of cells
+	 * @param cell the # of the cell
+	 */
+	private void push(int cell) {
+		// grow the stack if it is full
+		if (length == cells.length) cells = Arrays.copyOf(cells, length * 2);
+		cells[length++] = cell;
+		grid.noteEdit(id, cell, true);
+	}
 	
 	/**
 	 * Checks if a certain Tile is contained in this Path
 	 * @param tile the Tile to check
-	 * @return if the Tile is contained in this.tiles
+	 * @return if the Tile is on this Path
 	 */
 	public boolean containsTile(Tile tile) {
-		// loop over all Tiles, if a match is found return that
-		for (Tile mine : tiles) if (mine.equals(tile)) return true;
-		// if no match was found return that
-		return false;
+		// the Grid knows which Path owns each cell
+		return grid.findPath(tile) == this;
 	}
 	
 	/**
-	 * Clears a Path's graphics by clearing each Tile
+	 * Clears a Path's graphics by clearing each Tile, and gives up ownership of them
 	 */
-	public void clear() {for (Tile tile : tiles) tile.clear();}
+	public void clear() {
+		// from the last Tile back, as if backing up one Tile at a time
+		for (int i = length - 1; i >= 0; --i) {
+			int cell = cells[i];
+			grid.getCells().clear(cell);
+			if (grid.getOwner(cell) == id) {
+				grid.setOwner(cell, Grid.NO_PATH);
+				grid.noteEdit(id, cell, false);
+			}
+		}
+	}
 	
 	/**
 	 * Checks if a Path is complete (requires no further extensions)
 	 * @return if the last Tile requires an extension
 	 */
-	public boolean isComplete() {return lastTile().isComplete();}
+	public boolean isComplete() {return grid.getCells().isComplete(lastCell());}
 	
 	public String toString() {
 		// initialize return variable
-		String ret = "";
+		StringBuilder ret = new StringBuilder();
 		// add each Tile with an arrow after
-		for (Tile tile : tiles) ret += tile + " -> ";
+		for (int i = 0; i < length; ++i) ret.append(grid.tileAt(cells[i])).append(" -> ");
 		// if complete, remove last arrow
-		if (isComplete()) return ret.substring(0, ret.length() - 4);
-		// otherwise just return
-		else return ret;
+		if (isComplete()) ret.setLength(ret.length() - 4);
+		return ret.toString();
 	}
 }
\ No newline at end of file
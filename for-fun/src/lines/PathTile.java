@@ -11,12 +11,16 @@ public class PathTile extends Tile {
 	 * @param col the column of the Tile
 	 */
 	public PathTile(int row, int col) {
-		super(row, col);
+		super(row, col, null, Cells.PATH);
 	}
 	
-	public boolean isComplete() {
-		// both an in and out (path through) are required
-		return hasOut() && hasIn();
+	/**
+	 * Initializes a view of a PATH cell, which is complete with both an in and out (path through)
+	 * @param cells the cells which hold this Tile's state
+	 * @param cell the # of this Tile's cell
+	 */
+	PathTile(Cells cells, int cell) {
+		super(cells, cell);
 	}
 	
 	public boolean equals(Object other) {
@@ -0,0 +1,212 @@
+package lines;
+
+// for reading a file of Levels to race on
+import java.io.File;
+import java.io.IOException;
+
+// for running the Solvers at the same time
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Solves a Level by racing several differently-ordered Solvers against each other, since no
+ * one Strategy is fastest on every Level. A race
+ * <ul>
+ * 	<li>runs one Solver per Strategy, each on its own thread</li>
+ * 	<li>is won by the first Solver to finish (every Solver's search is complete, so a Solver
+ * 	which finishes without a solution proves there is none)</li>
+ * 	<li>and stops the other Solvers, which check a shared flag as they search</li>
+ * </ul>
+ * Every race is counted, so the wins of each Strategy show which are worth keeping.
+ * @author faith
+ */
+public class Portfolio {
+	/**
+	 * the Strategies which race
+	 */
+	private final Strategy[] strategies;
+	/**
+	 * the threads the Solvers run on, one per Strategy
+	 */
+	private final ExecutorService pool;
+	/**
+	 * the # of races won by each Strategy
+	 */
+	private final AtomicLongArray wins;
+	/**
+	 * the total nodes visited by each Strategy's Solvers, win or lose
+	 */
+	private final AtomicLongArray nodes;
+	/**
+	 * the # of races run
+	 */
+	private final AtomicInteger races;
+
+	/**
+	 * the # of nodes before a randomized Strategy first restarts
+	 */
+	private static final long RESTART_NODES = 10_000;
+
+	/**
+	 * Initializes a Portfolio
+	 * @param strategies the Strategies to race
+	 */
+	public Portfolio(Strategy... strategies) {
+		if (strategies.length == 0) throw new IllegalArgumentException("Have to have at least 1 strategy");
+		this.strategies = strategies.clone();
+		// daemon threads, so an unused Portfolio doesn't keep the program running
+		pool = Executors.newFixedThreadPool(strategies.length, task -> {
+			Thread thread = new Thread(task, "lines-portfolio");
+			thread.setDaemon(true);
+			return thread;
+		});
+		wins = new AtomicLongArray(strategies.length);
+		nodes = new AtomicLongArray(strategies.length);
+		races = new AtomicInteger();
+	}
+
+	/**
+	 * Makes a mix of Strategies for some # of threads: the deterministic orders first,
+	 * then randomized, restarting Strategies with different seeds for any other threads
+	 * @param threads the # of Strategies to make
+	 * @return the Strategies
+	 */
+	public static Strategy[] defaultStrategies(int threads) {
+		if (threads <= 0) throw new IllegalArgumentException("Can't race on " + threads + " threads");
+		Strategy[] deterministic = {
+				Strategy.DEFAULT,
+				new Strategy("nearest", Strategy.ColorOrder.NEAREST_FIRST, false, 0, 0),
+				new Strategy("farthest", Strategy.ColorOrder.FARTHEST_FIRST, false, 0, 0),
+				new Strategy("given-reversed", Strategy.ColorOrder.GIVEN, true, 0, 0)
+		};
+
+		Strategy[] strategies = new Strategy[threads];
+		for (int i = 0; i < threads; ++i) {
+			if (i < deterministic.length) strategies[i] = deterministic[i];
+			// alternate randomized color orders with randomized ties in the nearest-first order
+			else if (i % 2 == 0) strategies[i] = new Strategy("random-" + i, Strategy.ColorOrder.RANDOM,
+					false, i, RESTART_NODES);
+			else strategies[i] = new Strategy("nearest-random-" + i, Strategy.ColorOrder.NEAREST_FIRST,
+					false, i, RESTART_NODES);
+		}
+		return strategies;
+	}
+
+	/**
+	 * Races the Strategies on a Level
+	 * @param level the Level to solve
+	 * @return the Solver which won (solved, unless the Level is unsolvable)
+	 */
+	public Solver solve(Level level) {
+		// set up every Solver first, so they all start searching together
+		AtomicBoolean stop = new AtomicBoolean();
+		AtomicInteger winner = new AtomicInteger(-1);
+		Solver[] solvers = new Solver[strategies.length];
+		ArrayList<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int i = 0; i < strategies.length; ++i) {
+			int index = i;
+			solvers[i] = new Solver(level, strategies[i]);
+			tasks.add(() -> {
+				Solver solver = solvers[index];
+				solver.solve(stop);
+				// the first to finish without being stopped wins, and stops the rest
+				if (!solver.isCancelled() && winner.compareAndSet(-1, index)) stop.set(true);
+				nodes.addAndGet(index, solver.getNodes());
+				return null;
+			});
+		}
+
+		try {
+			// every Solver returns soon after the winner sets stop
+			for (Future<Void> future : pool.invokeAll(tasks)) future.get();
+		}
+		catch (InterruptedException e) {
+			stop.set(true);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while solving", e);
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException("A solver failed", e.getCause());
+		}
+
+		races.incrementAndGet();
+		wins.incrementAndGet(winner.get());
+		return solvers[winner.get()];
+	}
+
+	/**
+	 * Stops the threads of this Portfolio (it can't solve anything after this)
+	 */
+	public void shutdown() {pool.shutdown();}
+
+	/**
+	 * Gets a copy of this.strategies
+	 * @return the Strategies which race
+	 */
+	public Strategy[] getStrategies() {return strategies.clone();}
+
+	/**
+	 * Gets the # of races a Strategy has won
+	 * @param strategy the index of the Strategy
+	 * @return its # of wins
+	 */
+	public long getWins(int strategy) {return wins.get(strategy);}
+
+	/**
+	 * Gets the # of nodes a Strategy's Solvers have visited
+	 * @param strategy the index of the Strategy
+	 * @return its total # of nodes, win or lose
+	 */
+	public long getNodes(int strategy) {return nodes.get(strategy);}
+
+	/**
+	 * Gets this.races
+	 * @return the # of races run
+	 */
+	public int getRaces() {return races.get();}
+
+	/**
+	 * Gets the win statistics of every Strategy
+	 * @return a table of each Strategy's wins and nodes
+	 */
+	@Override
+	public String toString() {
+		String ret = String.format("%-20s %8s %8s %14s%n", "strategy", "wins", "win %", "nodes");
+		for (int i = 0; i < strategies.length; ++i) {
+			double percent = races.get() == 0 ? 0 : 100.0 * wins.get(i) / races.get();
+			ret += String.format("%-20s %8d %7.1f%% %14d%n", strategies[i], wins.get(i), percent, nodes.get(i));
+		}
+		return ret + races.get() + " races";
+	}
+
+	/**
+	 * Races a Portfolio on every Level of a file, printing each winner and the win statistics
+	 * @param args the file of Levels, and optionally the # of threads (Strategies) to race
+	 * @throws IOException if the file cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: Portfolio file [threads]");
+			return;
+		}
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+		Level[] levels = Level.readLevels(new File(args[0]));
+		Portfolio portfolio = new Portfolio(defaultStrategies(threads));
+		for (int i = 0; i < levels.length; ++i) {
+			long start = System.nanoTime();
+			Solver winner = portfolio.solve(levels[i]);
+			System.out.println("Level #" + i + ": " + (winner.isSolved() ? "solved" : "unsolvable") + " by "
+					+ winner.getStrategy() + " in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+		}
+		System.out.println(portfolio);
+		portfolio.shutdown();
+	}
+}
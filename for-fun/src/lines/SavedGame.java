@@ -0,0 +1,341 @@
+package lines;
+
+// for reading and writing save files
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+// for growing the encoded bytes
+import java.util.Arrays;
+
+/**
+ * A game of Lines in progress (which Level, and the Paths drawn on it), which can be
+ * saved in a few bytes and restored. The encoding is
+ * <ul>
+ * 	<li>a format byte, then the Level's index, the # of Paths, and whether the last Path
+ * 	is active (0 or 1), as varints</li>
+ * 	<li>for each Path, its starting cell and # of moves as varints, then each move as
+ * 	a 2-bit side (Tile.UP, DOWN, LEFT, or RIGHT), 4 to a byte</li>
+ * 	<li>with the active Path (if any) last, so it can be made active again once restored</li>
+ * </ul>
+ * so a Path costs about a quarter of a byte per cell.
+ * <br>
+ * Varints are 7 bits to a byte, lowest first, with the top bit set on every byte but the last.
+ * @author faith
+ */
+public final class SavedGame {
+	/**
+	 * the index of the Level being played
+	 */
+	private final int level;
+	/**
+	 * the Grid being played, with its Paths
+	 */
+	private final Grid grid;
+
+	/**
+	 * the first byte of every save, which changes if the encoding does
+	 */
+	private static final byte FORMAT = 1;
+
+	/**
+	 * Initializes a SavedGame
+	 * @param level the index of the Level being played
+	 * @param grid the Grid being played
+	 */
+	public SavedGame(int level, Grid grid) {
+		if (level < 0) throw new IllegalArgumentException("Invalid level #" + level);
+		this.level = level;
+		this.grid = grid;
+	}
+
+	/**
+	 * Gets this.level
+	 * @return the index of the Level being played
+	 */
+	public int getLevel() {return level;}
+
+	/**
+	 * Gets this.grid
+	 * @return the Grid being played, with its Paths
+	 */
+	public Grid getGrid() {return grid;}
+
+	/**
+	 * Encodes this game
+	 * @return the encoded bytes
+	 */
+	public byte[] toBytes() {
+		Cells cells = grid.getCells();
+		Path active = grid.getActivePath();
+
+		// find the Paths, with the active one last
+		int slots = grid.getSetCount() * 2;
+		Path[] paths = new Path[slots];
+		int count = 0;
+		for (int slot = 0; slot < slots; ++slot) {
+			Path path = grid.getPathFrom(slot);
+			if (path != null && path != active) paths[count++] = path;
+		}
+		if (active != null) paths[count++] = active;
+
+		// about 5 bytes of varints per Path, and a quarter of a byte per move
+		Encoder out = new Encoder(16 + count * 8);
+		out.writeByte(FORMAT);
+		out.writeVarint(level);
+		out.writeVarint(count);
+		out.writeVarint(active == null ? 0 : 1);
+		for (int i = 0; i < count; ++i) {
+			Path path = paths[i];
+			int moves = path.getLength() - 1;
+			out.writeVarint(path.getCell(0));
+			out.writeVarint(moves);
+
+			// pack the side of each move into 2 bits
+			int packed = 0;
+			for (int move = 0; move < moves; ++move) {
+				packed |= sideOf(cells, path.getCell(move), path.getCell(move + 1)) << ((move % 4) * 2);
+				if (move % 4 == 3 || move == moves - 1) {
+					out.writeByte((byte) packed);
+					packed = 0;
+				}
+			}
+		}
+		return out.toBytes();
+	}
+
+	/**
+	 * Decodes a game, drawing its Paths on a new Grid
+	 * @param data the encoded bytes (see toBytes)
+	 * @param levels the Levels the game could be of
+	 * @return the decoded game
+	 * @throws IllegalArgumentException if data is not a valid save for these Levels
+	 */
+	public static SavedGame fromBytes(byte[] data, Level[] levels) {
+		Decoder in = new Decoder(data);
+		if (in.readByte() != FORMAT) throw new IllegalArgumentException("Unknown save format");
+		int level = in.readVarint();
+		if (level >= levels.length) throw new IllegalArgumentException("Saved level #" + level + " doesn't exist");
+		Grid grid = new Grid(levels[level]);
+		Cells cells = grid.getCells();
+
+		int count = in.readVarint();
+		boolean lastActive = in.readVarint() == 1;
+		for (int i = 0; i < count; ++i) {
+			int cell = in.readVarint();
+			int moves = in.readVarint();
+			if (cell >= cells.size() || cells.getKind(cell) != Cells.END || moves == 0)
+				throw new IllegalArgumentException("Saved path #" + i + " doesn't start at an end-point");
+
+			// replay each move, checking it as if it were played
+			Path path = null;
+			int packed = 0;
+			for (int move = 0; move < moves; ++move) {
+				if (move % 4 == 0) packed = in.readByte();
+				byte side = (byte) ((packed >> ((move % 4) * 2)) & 3);
+				int from = cell;
+				cell = stepFrom(cells, cell, side);
+
+				MoveResult result = path == null ? grid.canStart(from, cell) : grid.canExtend(path, cell);
+				if (!result.isOk())
+					throw new IllegalArgumentException("Saved path #" + i + " can't go to " + grid.tileAt(cell) + ": " + result);
+				if (path == null) path = grid.startPath((EndTile) grid.tileAt(from), side);
+				else path.extend(cell);
+			}
+		}
+		if (!in.isDone()) throw new IllegalArgumentException("Save has extra bytes");
+		// starting each Path made it active, so only the last is, and only if it was before
+		if (!lastActive) grid.setActivePath(null);
+		return new SavedGame(level, grid);
+	}
+
+	/**
+	 * Writes this game to a file (see write(byte[], File))
+	 * @param file the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(File file) throws IOException {
+		write(toBytes(), file);
+	}
+
+	/**
+	 * Writes an encoded game to a file, by writing a temporary file next to it and then moving that
+	 * over it, so the file is always either the old save or the new one (never half-written)
+	 * @param data the encoded game (see toBytes)
+	 * @param file the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	static void write(byte[] data, File file) throws IOException {
+		File temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+		try {
+			Files.write(temp.toPath(), data);
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			}
+			// a file system that can't move atomically can at least replace the file in one step
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally {
+			// only still there if something went wrong
+			Files.deleteIfExists(temp.toPath());
+		}
+	}
+
+	/**
+	 * Reads a game from a file
+	 * @param file the file to read
+	 * @param levels the Levels the game could be of
+	 * @return the game
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if the file is not a valid save for these Levels
+	 */
+	public static SavedGame read(File file, Level[] levels) throws IOException {
+		return fromBytes(Files.readAllBytes(file.toPath()), levels);
+	}
+
+	/**
+	 * Finds the side of a cell that a neighbor is on
+	 * @param cells the cells of the Grid
+	 * @param from the # of the cell
+	 * @param to the # of its neighbor
+	 * @return Tile.UP, DOWN, LEFT, or RIGHT
+	 */
+	private static int sideOf(Cells cells, int from, int to) {
+		if (to == from - cells.getCols()) return Tile.UP;
+		else if (to == from + cells.getCols()) return Tile.DOWN;
+		else if (to == from - 1) return Tile.LEFT;
+		else return Tile.RIGHT;
+	}
+
+	/**
+	 * Finds the neighbor on a side of a cell
+	 * @param cells the cells of the Grid
+	 * @param cell the # of the cell
+	 * @param side Tile.UP, DOWN, LEFT, or RIGHT
+	 * @return the # of the neighbor
+	 * @throws IllegalArgumentException if there is no neighbor on that side
+	 */
+	private static int stepFrom(Cells cells, int cell, byte side) {
+		int row = cells.getRow(cell);
+		int col = cells.getCol(cell);
+		if (side == Tile.UP) --row;
+		else if (side == Tile.DOWN) ++row;
+		else if (side == Tile.LEFT) --col;
+		else ++col;
+		if (!cells.isValid(row, col)) throw new IllegalArgumentException("Saved path goes off the grid");
+		return cells.index(row, col);
+	}
+
+	/**
+	 * Writes bytes and varints into a growing array
+	 * @author faith
+	 */
+	private static class Encoder {
+		/**
+		 * the bytes written so far (only the first size are used)
+		 */
+		private byte[] bytes;
+		/**
+		 * the # of bytes written
+		 */
+		private int size;
+
+		/**
+		 * Initializes an Encoder
+		 * @param capacity the # of bytes to make room for at first
+		 */
+		private Encoder(int capacity) {
+			bytes = new byte[capacity];
+			size = 0;
+		}
+
+		/**
+		 * Writes a byte
+		 * @param value the byte
+		 */
+		private void writeByte(byte value) {
+			if (size == bytes.length) bytes = Arrays.copyOf(bytes, size * 2);
+			bytes[size++] = value;
+		}
+
+		/**
+		 * Writes a varint
+		 * @param value the value, which can't be negative
+		 */
+		private void writeVarint(int value) {
+			while ((value & ~0x7F) != 0) {
+				writeByte((byte) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			writeByte((byte) value);
+		}
+
+		/**
+		 * Gets the bytes written
+		 * @return a copy of exactly the bytes written
+		 */
+		private byte[] toBytes() {return Arrays.copyOf(bytes, size);}
+	}
+
+	/**
+	 * Reads bytes and varints from an array
+	 * @author faith
+	 */
+	private static class Decoder {
+		/**
+		 * the bytes to read
+		 */
+		private final byte[] bytes;
+		/**
+		 * the index of the next byte to read
+		 */
+		private int next;
+
+		/**
+		 * Initializes a Decoder
+		 * @param bytes the bytes to read
+		 */
+		private Decoder(byte[] bytes) {
+			this.bytes = bytes;
+			next = 0;
+		}
+
+		/**
+		 * Reads a byte
+		 * @return the byte, as 0-255
+		 * @throws IllegalArgumentException if there are no bytes left
+		 */
+		private int readByte() {
+			if (next == bytes.length) throw new IllegalArgumentException("Save ends too soon");
+			return bytes[next++] & 0xFF;
+		}
+
+		/**
+		 * Reads a varint
+		 * @return the value
+		 * @throws IllegalArgumentException if there are no bytes left, or the value is too big
+		 */
+		private int readVarint() {
+			int value = 0;
+			for (int shift = 0; shift < 32; shift += 7) {
+				int read = readByte();
+				value |= (read & 0x7F) << shift;
+				if ((read & 0x80) == 0) {
+					if (value < 0) throw new IllegalArgumentException("Saved number is too big");
+					return value;
+				}
+			}
+			throw new IllegalArgumentException("Saved number is too big");
+		}
+
+		/**
+		 * Checks if every byte has been read
+		 * @return whether there are no bytes left
+		 */
+		private boolean isDone() {return next == bytes.length;}
+	}
+}
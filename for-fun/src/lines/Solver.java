@@ -0,0 +1,1351 @@
+package lines;
+
+// for growing the stack of forced cells
+import java.util.Arrays;
+// for random tie-breaking
+import java.util.SplittableRandom;
+// for being stopped from another thread
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Solves a Level of Lines by depth-first search, which
+ * <ul>
+ * 	<li>keeps occupied cells in a bitset, and cells as row-major indexes</li>
+ * 	<li>grows each color's path from both ends, always extending the end with the fewest moves</li>
+ * 	<li>prunes dead-end cells, which could not have a path through them</li>
+ * 	<li>prunes when two ends of the same color can no longer reach each other</li>
+ * 	<li>and prunes stranded regions, which no color could fill</li>
+ * </ul>
+ * How ties are broken (and whether the search restarts) is set by a Strategy, and a search
+ * can be stopped from another thread, so several Solvers can race (see Portfolio).
+ * <br>
+ * The moves made are kept on a stack rather than recursed into, so the search can go as deep as
+ * the Level has cells, and the free regions are kept up to date as cells are filled and freed
+ * (as in Watchdog), so each node only looks at the cells around its move, and at each unfinished color.
+ * <br>
+ * The search is still exponential in the worst case. A 100x100 Level with one color solves in
+ * about 20 milliseconds, and a 300x300 one in under 100; most generated 15x15 Levels (about 28 colors)
+ * solve in a few milliseconds and nearly all in under a second, but generated 20x20 Levels with
+ * 28 or more colors usually don't finish in 2 seconds. Big Levels should be solved with a stop flag
+ * (see solve(AtomicBoolean)).
+ * @author faith
+ */
+public class Solver {
+	/**
+	 * the # of rows in the Level
+	 */
+	private final int rows;
+	/**
+	 * the # of columns in the Level
+	 */
+	private final int cols;
+	/**
+	 * the end-point sets of the Level, as in Level.getSets()
+	 */
+	private final int[][] sets;
+	/**
+	 * the cell in each direction (Tile.UP, DOWN, LEFT, RIGHT) of each cell, or -1 if off the grid
+	 */
+	private final int[] neighbors;
+	/**
+	 * a bit for every cell which is not free (blocks, end-points, and path cells)
+	 */
+	private final long[] filled;
+	/**
+	 * the head (color * 2 + which end) in each cell, or -1 if no head is there
+	 */
+	private final int[] headAt;
+	/**
+	 * the cell each head is currently on, by color * 2 + which end
+	 */
+	private final int[] heads;
+	/**
+	 * the cell each cell's path came from, for rebuilding paths once solved
+	 */
+	private final int[] prev;
+	/**
+	 * whether each color's two ends have met
+	 */
+	private final boolean[] done;
+	/**
+	 * the # of colors whose ends have not met
+	 */
+	private int undone;
+	/**
+	 * the # of free cells
+	 */
+	private int free;
+	/**
+	 * the # of moves currently made
+	 */
+	private int depth;
+	/**
+	 * the candidate moves at each depth, 4 per depth
+	 */
+	private final int[] moves;
+	/**
+	 * scratch space for ranking the moves being listed
+	 */
+	private final int[] rank;
+	/**
+	 * the # of search nodes visited so far
+	 */
+	private long nodes;
+
+	/**
+	 * whether the Level has been solved
+	 */
+	private boolean solved;
+	/**
+	 * how this Solver orders its search
+	 */
+	private final Strategy strategy;
+	/**
+	 * the order to look at heads in when choosing which to move
+	 */
+	private final int[] order;
+	/**
+	 * where random tie-breaks come from, or null if the Strategy is not random
+	 */
+	private final SplittableRandom random;
+	/**
+	 * set by another thread to stop the search, or null if nothing can stop it
+	 */
+	private AtomicBoolean stop;
+	/**
+	 * whether the search was stopped (by stop, or by running out of budget)
+	 */
+	private boolean aborted;
+	/**
+	 * whether the search was stopped by stop
+	 */
+	private boolean cancelled;
+	/**
+	 * the # of nodes the current restart can visit, or 0 for no limit
+	 */
+	private long budget;
+	/**
+	 * the # of nodes visited before the current restart began
+	 */
+	private long restartAt;
+	/**
+	 * the # of restarts so far
+	 */
+	private int restarts;
+	/**
+	 * one less than how often (in nodes) to check stop, a power of 2
+	 */
+	private static final int STOP_CHECK_MASK = 0x3FF;
+	/**
+	 * the # of solutions to find before stopping the search
+	 */
+	private int limit;
+	/**
+	 * the # of solutions found so far
+	 */
+	private int found;
+
+	// the stack of states the search is in, one frame per depth
+
+	/**
+	 * the head whose moves are tried at each depth
+	 */
+	private final int[] mover;
+	/**
+	 * the # of moves listed at each depth
+	 */
+	private final int[] options;
+	/**
+	 * the # of moves already tried at each depth (the last one tried is the one made)
+	 */
+	private final int[] tried;
+	/**
+	 * what visit found: enough solutions have been found
+	 */
+	private static final int FOUND = 0;
+	/**
+	 * what visit found: there is no way to solve the Level from here
+	 */
+	private static final int DEAD = 1;
+	/**
+	 * what visit found: there are moves to try from here
+	 */
+	private static final int OPEN = 2;
+
+	// free regions, kept up to date as cells are filled and freed (as in Watchdog)
+
+	/**
+	 * the region label of each free cell, or NO_REGION if the cell is filled
+	 */
+	private final int[] region;
+	/**
+	 * the # of cells in each region, by label
+	 */
+	private final int[] regionSize;
+	/**
+	 * the labels not in use, as a stack
+	 */
+	private final int[] spareLabels;
+	/**
+	 * the # of labels in spareLabels
+	 */
+	private int spareCount;
+	/**
+	 * the # of regions
+	 */
+	private int regions;
+	/**
+	 * the region of a filled cell
+	 */
+	private static final int NO_REGION = -1;
+	/**
+	 * the cells around a cell, clockwise from up, as (row, column) offsets
+	 */
+	private static final int[][] RING = {{-1, 0}, {-1, 1}, {0, 1}, {1, 1}, {1, 0}, {1, -1}, {0, -1}, {-1, -1}};
+	/**
+	 * scratch space for whether each cell of RING is free
+	 */
+	private final boolean[] ring;
+
+	// scratch space for splitting a region
+
+	/**
+	 * the cells reached by a flood or split, in order
+	 */
+	private final int[] queue;
+	/**
+	 * the next cell in each piece's queue, or -1
+	 */
+	private final int[] link;
+	/**
+	 * the last split which reached each cell
+	 */
+	private final int[] reached;
+	/**
+	 * the # of splits so far
+	 */
+	private int split;
+	/**
+	 * the piece which reached each cell in the last split
+	 */
+	private final byte[] pieceOf;
+	/**
+	 * the first cell in each piece's queue, or -1 if it is empty
+	 */
+	private final int[] pieceHead;
+	/**
+	 * the last cell in each piece's queue
+	 */
+	private final int[] pieceTail;
+	/**
+	 * the piece each piece has been found to be part of
+	 */
+	private final int[] pieceParent;
+	/**
+	 * the new label of each piece
+	 */
+	private final int[] pieceLabel;
+
+	// forced moves: a free cell with only 2 usable neighbors, one of them a head
+
+	/**
+	 * cells which might be forced, found around each move, as a stack
+	 */
+	private int[] forced;
+	/**
+	 * the # of cells in forced
+	 */
+	private int forcedCount;
+	/**
+	 * a head which must move into forcedCell, or -1 if none was found
+	 */
+	private int forcedHead;
+	/**
+	 * the cell forcedHead must move into
+	 */
+	private int forcedCell;
+	/**
+	 * what inspect finds for a cell no path could go through
+	 */
+	private static final int DEAD_END = -2;
+	/**
+	 * what inspect finds for a cell which no head is forced into
+	 */
+	private static final int NOT_FORCED = -1;
+
+	// scratch space for matching regions to colors
+
+	/**
+	 * the last check in which each region label had a color listed for it
+	 */
+	private final int[] regionStamp;
+	/**
+	 * the number (from 0 in each check) of each region label with a color listed for it
+	 */
+	private final int[] regionIndex;
+	/**
+	 * each color whose heads both touch a region, in the order listed
+	 */
+	private final int[] pairColor;
+	/**
+	 * the region label of each pair in pairColor
+	 */
+	private final int[] pairRegion;
+	/**
+	 * the colors whose heads both touch each region of the last check, region by region
+	 */
+	private final int[] candidates;
+	/**
+	 * where each region's colors start in candidates (regions numbered from 0 in each check)
+	 */
+	private final int[] regionStart;
+	/**
+	 * where the next color of each region goes in candidates, while grouping them
+	 */
+	private final int[] regionFill;
+	/**
+	 * the region (numbered from 0) each color was last matched to
+	 */
+	private final int[] matchOf;
+	/**
+	 * the last check in which each color was matched to a region
+	 */
+	private final int[] matchedIn;
+	/**
+	 * the last matching attempt which visited each color
+	 */
+	private final int[] visited;
+	/**
+	 * the # of matching attempts so far
+	 */
+	private int visit;
+	/**
+	 * the # of region checks run so far
+	 */
+	private int check;
+
+	/**
+	 * Sets up a Solver for a Level, with the default Strategy
+	 * @param level the Level to solve
+	 */
+	public Solver(Level level) {
+		this(level, Strategy.DEFAULT);
+	}
+
+	/**
+	 * Sets up a Solver for a Level
+	 * @param level the Level to solve
+	 * @param strategy how to order the search
+	 */
+	public Solver(Level level, Strategy strategy) {
+		// check for argument validity
+		if (level.getRows() <= 0 || level.getCols() <= 0)
+			throw new IllegalArgumentException("Invalid grid dimensions: "
+					+ level.getRows() + "x" + level.getCols());
+		if (level.getSets() == null || level.getSets().length == 0)
+			throw new IllegalArgumentException("Have to have at least 1 set of endpoints");
+
+		rows = level.getRows();
+		cols = level.getCols();
+		sets = level.getSets();
+		int cells = rows * cols;
+
+		// initialize all arrays to the right size
+		neighbors = new int[cells * 4];
+		filled = new long[(cells + 63) / 64];
+		headAt = new int[cells];
+		heads = new int[sets.length * 2];
+		prev = new int[cells];
+		done = new boolean[sets.length];
+		// each move fills a cell or finishes a color, so that is as deep as the search goes
+		int frames = cells + sets.length + 1;
+		moves = new int[frames * 4];
+		mover = new int[frames];
+		options = new int[frames];
+		tried = new int[frames];
+		rank = new int[4];
+		region = new int[cells];
+		regionSize = new int[cells];
+		spareLabels = new int[cells];
+		ring = new boolean[RING.length];
+		queue = new int[cells];
+		link = new int[cells];
+		reached = new int[cells];
+		pieceOf = new byte[cells];
+		pieceHead = new int[4];
+		pieceTail = new int[4];
+		pieceParent = new int[4];
+		pieceLabel = new int[4];
+		forced = new int[cells];
+		regionStamp = new int[cells];
+		regionIndex = new int[cells];
+		// each head touches at most 4 regions, so each color is a candidate for at most 4
+		pairColor = new int[sets.length * 4];
+		pairRegion = new int[sets.length * 4];
+		candidates = new int[sets.length * 4];
+		regionStart = new int[sets.length * 4 + 1];
+		regionFill = new int[sets.length * 4];
+		matchOf = new int[sets.length];
+		matchedIn = new int[sets.length];
+		visited = new int[sets.length];
+
+		// loop over all cells, saving their neighbors
+		for (int cell = 0; cell < cells; ++cell) {
+			int row = cell / cols;
+			int col = cell % cols;
+			neighbors[cell * 4 + Tile.UP] = row > 0 ? cell - cols : -1;
+			neighbors[cell * 4 + Tile.DOWN] = row < rows - 1 ? cell + cols : -1;
+			neighbors[cell * 4 + Tile.LEFT] = col > 0 ? cell - 1 : -1;
+			neighbors[cell * 4 + Tile.RIGHT] = col < cols - 1 ? cell + 1 : -1;
+			headAt[cell] = -1;
+			prev[cell] = -1;
+			region[cell] = NO_REGION;
+			spareLabels[cell] = cells - 1 - cell;
+		}
+		spareCount = cells;
+
+		// every cell starts free
+		free = cells;
+		// block-tiles are always filled
+		for (int[] block : level.getBlocks()) fill(index(block[0], block[1]));
+		// each end-point starts as a head of its color
+		for (int set = 0; set < sets.length; ++set) {
+			placeHead(set * 2, index(sets[set][0], sets[set][1]));
+			placeHead(set * 2 + 1, index(sets[set][2], sets[set][3]));
+		}
+		undone = sets.length;
+		// label the free regions
+		for (int cell = 0; cell < cells; ++cell) if (isFree(cell) && region[cell] == NO_REGION) flood(cell, newLabel());
+
+		this.strategy = strategy;
+		random = strategy.isRandom() ? new SplittableRandom(strategy.getSeed()) : null;
+		order = new int[heads.length];
+		orderHeads();
+	}
+
+	/**
+	 * Solves a Level
+	 * @param level the Level to solve
+	 * @return the solved Paths on a new Grid for the Level, in end-point set order, or null if unsolvable
+	 */
+	public static Path[] solve(Level level) {
+		Solver solver = new Solver(level);
+		if (!solver.solve()) return null;
+		return solver.applyTo(new Grid(level));
+	}
+
+	/**
+	 * Searches for a solution
+	 * @return whether the Level was solved
+	 */
+	public boolean solve() {
+		if (!solved) {
+			limit = 1;
+			found = 0;
+			solved = restartingSearch();
+		}
+		return solved;
+	}
+
+	/**
+	 * Searches for a solution, until it is found or stop is set
+	 * @param stop set by another thread to stop the search
+	 * @return whether the Level was solved (false if it is unsolvable, or the search was stopped)
+	 */
+	public boolean solve(AtomicBoolean stop) {
+		this.stop = stop;
+		return solve();
+	}
+
+	/**
+	 * Searches, restarting with a doubled budget each time the budget runs out
+	 * @return whether a solution was found
+	 */
+	private boolean restartingSearch() {
+		// without restarts, one search is the whole search
+		if (strategy.getRestartNodes() == 0) return search();
+
+		for (budget = strategy.getRestartNodes(); ; budget = Math.min(budget * 2, Long.MAX_VALUE / 2)) {
+			restartAt = nodes;
+			aborted = false;
+			if (search()) return true;
+			// a search which ran to the end without a solution proves there is none
+			if (!aborted || cancelled) return false;
+			++restarts;
+			// a new random order for the next try
+			orderHeads();
+		}
+	}
+
+	/**
+	 * Counts the solutions, up to a limit (if there are that many, the last one found is kept)
+	 * <br>
+	 * countSolutions(2) tells whether a Level has exactly one solution.
+	 * @param limit the most solutions to count
+	 * @return the # of solutions, or limit if there are at least that many
+	 * @throws IllegalStateException if this Solver has already searched
+	 */
+	public int countSolutions(int limit) {
+		if (limit <= 0) throw new IllegalArgumentException("Can't count up to " + limit + " solutions");
+		if (nodes > 0) throw new IllegalStateException("Solver has already searched");
+		this.limit = limit;
+		found = 0;
+		// restarting would find the same solutions again, so this is always one search
+		solved = search();
+		return found;
+	}
+
+	/**
+	 * Counts the solutions, up to a limit, until they are counted or stop is set
+	 * @param limit the most solutions to count
+	 * @param stop set by another thread to stop the search
+	 * @return the # of solutions found (only a lower bound if isCancelled)
+	 * @throws IllegalStateException if this Solver has already searched
+	 */
+	public int countSolutions(int limit, AtomicBoolean stop) {
+		this.stop = stop;
+		return countSolutions(limit);
+	}
+
+	/**
+	 * Gets the # of search nodes visited so far
+	 * @return the # of nodes
+	 */
+	public long getNodes() {return nodes;}
+
+	/**
+	 * Gets this.strategy
+	 * @return how this Solver orders its search
+	 */
+	public Strategy getStrategy() {return strategy;}
+
+	/**
+	 * Gets this.solved
+	 * @return whether the Level has been solved
+	 */
+	public boolean isSolved() {return solved;}
+
+	/**
+	 * Gets this.cancelled
+	 * @return whether the search was stopped by another thread (so did not finish)
+	 */
+	public boolean isCancelled() {return cancelled;}
+
+	/**
+	 * Gets this.restarts
+	 * @return the # of times the search has restarted
+	 */
+	public int getRestarts() {return restarts;}
+
+	/**
+	 * Puts the heads in the order the Strategy says to look at them in
+	 */
+	private void orderHeads() {
+		// start with the colors in the given order
+		int[] colors = new int[sets.length];
+		for (int set = 0; set < sets.length; ++set) colors[set] = set;
+
+		// then reorder them
+		switch (strategy.getColorOrder()) {
+		case NEAREST_FIRST:
+		case FARTHEST_FIRST:
+			// insertion-sort by the distance between the end-points
+			boolean nearest = strategy.getColorOrder() == Strategy.ColorOrder.NEAREST_FIRST;
+			for (int i = 1; i < colors.length; ++i) {
+				int color = colors[i];
+				int distance = distance(color);
+				int j = i;
+				while (j > 0 && (nearest ? distance(colors[j - 1]) > distance : distance(colors[j - 1]) < distance)) {
+					colors[j] = colors[j - 1];
+					--j;
+				}
+				colors[j] = color;
+			}
+			break;
+		case RANDOM:
+			// Fisher-Yates shuffle
+			for (int i = colors.length - 1; i > 0; --i) {
+				int swap = random.nextInt(i + 1);
+				int color = colors[i];
+				colors[i] = colors[swap];
+				colors[swap] = color;
+			}
+			break;
+		default:
+			break;
+		}
+
+		// both heads of each color go next to each other, the preferred end first
+		int first = strategy.isSecondEndFirst() ? 1 : 0;
+		for (int i = 0; i < colors.length; ++i) {
+			order[i * 2] = colors[i] * 2 + first;
+			order[i * 2 + 1] = colors[i] * 2 + (first ^ 1);
+		}
+	}
+
+	/**
+	 * Gets how far apart the end-points of a color are
+	 * @param color the color (end-point set)
+	 * @return the Manhattan distance between its end-points
+	 */
+	private int distance(int color) {
+		return Math.abs(sets[color][0] - sets[color][2]) + Math.abs(sets[color][1] - sets[color][3]);
+	}
+
+	/**
+	 * Checks if the search should stop, because of stop or the restart budget
+	 * @return whether the search should stop
+	 */
+	private boolean shouldStop() {
+		if (aborted) return true;
+		// stop is shared between threads, so only look at it every so often
+		if (stop != null && (nodes & STOP_CHECK_MASK) == 0 && stop.get()) {
+			cancelled = true;
+			aborted = true;
+		}
+		else if (budget > 0 && nodes - restartAt > budget) aborted = true;
+		return aborted;
+	}
+
+	/**
+	 * Gets the solution as cell indexes (row * columns + column)
+	 * @return for each end-point set, the cells from its first to its second end-point
+	 * @throws IllegalStateException if the Level has not been solved
+	 */
+	public int[][] getSolution() {
+		if (!solved) throw new IllegalStateException("Level has not been solved");
+
+		int[][] solution = new int[sets.length][];
+		// loop over each color
+		for (int set = 0; set < sets.length; ++set) {
+			// count the cells behind each of the two heads
+			int first = trailLength(heads[set * 2]);
+			int second = trailLength(heads[set * 2 + 1]);
+			solution[set] = new int[first + second];
+
+			// the first head's trail goes in backwards, ending at the first head
+			int cell = heads[set * 2];
+			for (int i = first - 1; i >= 0; --i, cell = prev[cell]) solution[set][i] = cell;
+			// the second head's trail goes in forwards, ending at the second end-point
+			cell = heads[set * 2 + 1];
+			for (int i = first; i < first + second; ++i, cell = prev[cell]) solution[set][i] = cell;
+		}
+		return solution;
+	}
+
+	/**
+	 * Draws the solution onto a Grid for the same Level
+	 * @param grid a Grid with no Paths on it
+	 * @return the Paths drawn, in end-point set order
+	 * @throws InvalidPathException if the Grid does not match the Level
+	 */
+	public Path[] applyTo(Grid grid) throws InvalidPathException {
+		int[][] solution = getSolution();
+		Path[] paths = new Path[solution.length];
+
+		// loop over each color's cells
+		for (int set = 0; set < solution.length; ++set) {
+			EndTile start = (EndTile) tileAt(grid, solution[set][0]);
+			Tile next = tileAt(grid, solution[set][1]);
+			// start the Path, then extend it through every other cell
+			paths[set] = grid.startPath(start, Tile.sideConnecting(start, next));
+			for (int i = 2; i < solution[set].length; ++i)
+				paths[set].extend(tileAt(grid, solution[set][i]));
+		}
+		return paths;
+	}
+
+	/**
+	 * Searches from the current state, keeping the moves made on a stack instead of recursing
+	 * <br>
+	 * If the search ends without finding enough solutions, every move it made is undone,
+	 * so the next search (after a restart) starts from the same state
+	 * @return whether enough solutions were found (the last one found is left in place)
+	 */
+	private boolean search() {
+		int root = depth;
+		int state = visit(checkAll());
+		while (true) {
+			if (state == FOUND) return true;
+			// try the next move from this state, if it has one
+			if (state == OPEN && !aborted && tried[depth] < options[depth]) {
+				int head = mover[depth];
+				int cell = moves[depth * 4 + tried[depth]++];
+				// a state with a choice of moves had no forced cells left
+				if (options[depth] > 1) forcedCount = 0;
+				state = visit(move(head, cell));
+				continue;
+			}
+			// otherwise back up a move
+			if (depth == root) return false;
+			undo();
+			state = OPEN;
+		}
+	}
+
+	/**
+	 * Looks at the current state, and lists the moves to try from it
+	 * <br>
+	 * If some cell can only be filled by one head, that is the only move to try;
+	 * otherwise it is the moves of the head with the fewest
+	 * @param consistent false if the last move left a dead-end cell
+	 * @return FOUND if enough solutions have been found, DEAD if there is nothing to try,
+	 * or OPEN if moves were listed at the current depth
+	 */
+	private int visit(boolean consistent) {
+		++nodes;
+		if (shouldStop() || !consistent) return DEAD;
+		// once every color is done, it is only solved if no cells are left over,
+		// and the search only stops once enough solutions are found
+		if (undone == 0) return free == 0 && ++found >= limit ? FOUND : DEAD;
+		if (!findForced() || !regionsFit()) return DEAD;
+
+		if (forcedHead >= 0) {
+			mover[depth] = forcedHead;
+			moves[depth * 4] = forcedCell;
+			options[depth] = 1;
+			tried[depth] = 0;
+			return OPEN;
+		}
+
+		// find the head with the fewest moves
+		int best = -1;
+		int bestCount = 5;
+		for (int i = 0; i < order.length && bestCount > 1; ++i) if (!done[order[i] / 2]) {
+			int head = order[i];
+			int count = countMoves(head);
+			if (count < bestCount) {
+				best = head;
+				bestCount = count;
+			}
+		}
+		// if some head is stuck, this is a dead end
+		if (bestCount == 0) return DEAD;
+
+		mover[depth] = best;
+		options[depth] = listMoves(best);
+		tried[depth] = 0;
+		return OPEN;
+	}
+
+	/**
+	 * Checks every free cell for dead ends, and collects the forced ones (at the start of a search)
+	 * @return false if there is a dead-end cell
+	 */
+	private boolean checkAll() {
+		forcedCount = 0;
+		for (int cell = 0; cell < headAt.length; ++cell) if (isFree(cell) && !checkCell(cell)) return false;
+		return true;
+	}
+
+	/**
+	 * Checks the free cells next to a cell which changed, and collects the forced ones
+	 * @param cell the cell which changed
+	 * @return false if one of them is a dead end
+	 */
+	private boolean checkAround(int cell) {
+		for (int dir = 0; dir < 4; ++dir) {
+			int next = neighbors[cell * 4 + dir];
+			if (next >= 0 && isFree(next) && !checkCell(next)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks a free cell, adding it to forced if a head might have to move into it
+	 * @param cell the free cell
+	 * @return false if it is a dead end
+	 */
+	private boolean checkCell(int cell) {
+		int head = inspect(cell);
+		if (head == DEAD_END) return false;
+		if (head >= 0) {
+			if (forcedCount == forced.length) forced = Arrays.copyOf(forced, forcedCount * 2);
+			forced[forcedCount++] = cell;
+		}
+		return true;
+	}
+
+	/**
+	 * Pops cells off forced until one is still forced (they may have changed since being added)
+	 * <br>
+	 * The head and cell found are left in forcedHead and forcedCell
+	 * @return false if one of them has become a dead end
+	 */
+	private boolean findForced() {
+		forcedHead = -1;
+		while (forcedCount > 0) {
+			int cell = forced[--forcedCount];
+			if (!isFree(cell)) continue;
+			int head = inspect(cell);
+			if (head == DEAD_END) return false;
+			if (head >= 0) {
+				forcedHead = head;
+				forcedCell = cell;
+				return true;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Looks at the neighbors of a free cell that a path through it could use
+	 * <br>
+	 * A free cell with only 2 usable neighbors must have a path through both,
+	 * so if one of them is a head, that head has to move into the cell
+	 * @param cell the free cell
+	 * @return the head forced into the cell, NOT_FORCED, or DEAD_END if no path could go through it
+	 */
+	private int inspect(int cell) {
+		// the # of neighbors that a path through this cell could use
+		int ports = 0;
+		// the heads among those neighbors
+		int firstHead = -1;
+		int secondHead = -1;
+		for (int dir = 0; dir < 4; ++dir) {
+			int next = neighbors[cell * 4 + dir];
+			if (next < 0) continue;
+			if (isFree(next)) ++ports;
+			else if (headAt[next] >= 0) {
+				++ports;
+				if (firstHead < 0) firstHead = headAt[next];
+				else secondHead = headAt[next];
+			}
+		}
+		// a dead-end cell can never have a path through it
+		if (ports < 2) return DEAD_END;
+		if (ports > 2 || firstHead < 0) return NOT_FORCED;
+		// two different colors can't both go through one cell
+		if (secondHead >= 0 && firstHead / 2 != secondHead / 2) return DEAD_END;
+		return firstHead;
+	}
+
+	/**
+	 * Checks that every color can still meet, and that every region can get a color of its own
+	 * <br>
+	 * Each color's path can only fill cells in one region, so every region needs
+	 * its own color: the regions must be matched one-to-one with colors that touch them
+	 * @return false if a color cannot meet, or a region would be stranded
+	 */
+	private boolean regionsFit() {
+		++check;
+		// the # of regions with a color listed for them, and of colors listed
+		int marked = 0;
+		int listed = 0;
+
+		// loop over each unfinished color, listing the regions both its heads touch
+		for (int color = 0; color < done.length; ++color) if (!done[color]) {
+			int one = heads[color * 2];
+			int two = heads[color * 2 + 1];
+			int first = listed;
+			for (int dir = 0; dir < 4; ++dir) {
+				int next = neighbors[one * 4 + dir];
+				if (next < 0 || !isFree(next)) continue;
+				int label = region[next];
+				if (!touches(two, label) || isListed(label, first, listed)) continue;
+				if (regionStamp[label] != check) {
+					regionStamp[label] = check;
+					regionIndex[label] = marked++;
+				}
+				pairColor[listed] = color;
+				pairRegion[listed++] = label;
+			}
+			// the color must be able to meet, through a region or directly
+			if (listed == first && !areNeighbors(one, two)) return false;
+		}
+		// a region that no color could cross can never be filled
+		if (marked < regions) return false;
+
+		// group the colors listed by region
+		for (int cur = 0; cur <= marked; ++cur) regionStart[cur] = 0;
+		for (int i = 0; i < listed; ++i) ++regionStart[regionIndex[pairRegion[i]] + 1];
+		for (int cur = 0; cur < marked; ++cur) {
+			regionStart[cur + 1] += regionStart[cur];
+			regionFill[cur] = regionStart[cur];
+		}
+		for (int i = 0; i < listed; ++i) candidates[regionFill[regionIndex[pairRegion[i]]]++] = pairColor[i];
+
+		// every region must get a color of its own
+		for (int cur = 0; cur < marked; ++cur) {
+			++visit;
+			if (!match(cur)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if a region was already listed for the color being listed
+	 * @param label the region label
+	 * @param first where the color's regions start in pairRegion
+	 * @param listed where they end
+	 * @return whether the region is among them
+	 */
+	private boolean isListed(int label, int first, int listed) {
+		for (int i = first; i < listed; ++i) if (pairRegion[i] == label) return true;
+		return false;
+	}
+
+	/**
+	 * Checks if a cell is next to a region
+	 * @param cell the cell
+	 * @param label the region label
+	 * @return whether one of its free neighbors is in the region
+	 */
+	private boolean touches(int cell, int label) {
+		for (int dir = 0; dir < 4; ++dir) {
+			int next = neighbors[cell * 4 + dir];
+			if (next >= 0 && isFree(next) && region[next] == label) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Tries to match a region to a color, re-matching other regions if needed (Kuhn's algorithm)
+	 * @param cur the region, numbered from 0 in this check
+	 * @return whether the region was matched
+	 */
+	private boolean match(int cur) {
+		for (int i = regionStart[cur]; i < regionStart[cur + 1]; ++i) {
+			int color = candidates[i];
+			if (visited[color] == visit) continue;
+			visited[color] = visit;
+			// take a free color, or one whose region can move to another color
+			if (matchedIn[color] != check || match(matchOf[color])) {
+				matchedIn[color] = check;
+				matchOf[color] = cur;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Counts the moves available to a head
+	 * @param head the head (color * 2 + which end)
+	 * @return the # of free neighbors, plus 1 if the other head of this color is next to it
+	 */
+	private int countMoves(int head) {
+		int cell = heads[head];
+		int partner = heads[head ^ 1];
+		int count = 0;
+		for (int dir = 0; dir < 4; ++dir) {
+			int next = neighbors[cell * 4 + dir];
+			if (next >= 0 && (next == partner || isFree(next))) ++count;
+		}
+		return count;
+	}
+
+	/**
+	 * Lists the moves available to a head into moves at the current depth, best first
+	 * <br>
+	 * Meeting the other head goes first, then cells with the fewest free neighbors (hugging walls),
+	 * with ties broken randomly if the Strategy is random
+	 * @param head the head (color * 2 + which end)
+	 * @return the # of moves listed
+	 */
+	private int listMoves(int head) {
+		int cell = heads[head];
+		int partner = heads[head ^ 1];
+		int base = depth * 4;
+		int count = 0;
+
+		for (int dir = 0; dir < 4; ++dir) {
+			int next = neighbors[cell * 4 + dir];
+			if (next < 0 || (next != partner && !isFree(next))) continue;
+			int score = next == partner ? -1 : freeNeighbors(next);
+			// a random low part only reorders moves which tie
+			if (random != null) score = score * 4 + random.nextInt(4);
+			// insertion-sort this move into place
+			int i = count++;
+			while (i > 0 && rank[i - 1] > score) {
+				rank[i] = rank[i - 1];
+				moves[base + i] = moves[base + i - 1];
+				--i;
+			}
+			rank[i] = score;
+			moves[base + i] = next;
+		}
+		return count;
+	}
+
+	/**
+	 * Moves a head into a cell, one depth deeper
+	 * @param head the head (color * 2 + which end)
+	 * @param cell the free cell, or the cell of the other head of this color
+	 * @return false if the move left a dead-end cell next to it
+	 */
+	private boolean move(int head, int cell) {
+		++depth;
+		int from = heads[head];
+		// meeting the other head finishes this color
+		if (cell == heads[head ^ 1]) {
+			done[head / 2] = true;
+			--undone;
+			headAt[from] = -1;
+			headAt[cell] = -1;
+		}
+		// otherwise the head moves forward one cell
+		else {
+			headAt[from] = -1;
+			fill(cell);
+			occupy(cell);
+			placeHead(head, cell);
+			prev[cell] = from;
+		}
+		// only the cells next to the ones which changed can have become dead ends or forced
+		return checkAround(from) && checkAround(cell);
+	}
+
+	/**
+	 * Undoes the move made from the depth above
+	 */
+	private void undo() {
+		--depth;
+		int head = mover[depth];
+		int cell = moves[depth * 4 + tried[depth] - 1];
+		// the color can only be done if this move finished it
+		if (done[head / 2]) {
+			done[head / 2] = false;
+			++undone;
+			headAt[heads[head]] = head;
+			headAt[cell] = head ^ 1;
+		}
+		else {
+			headAt[cell] = -1;
+			unfill(cell);
+			release(cell);
+			placeHead(head, prev[cell]);
+		}
+	}
+
+	/**
+	 * Updates the regions for a cell becoming free, merging the regions around it
+	 * @param cell the cell
+	 */
+	private void release(int cell) {
+		// the biggest region around the cell takes in the cell, and the other regions
+		int biggest = NO_REGION;
+		for (int dir = 0; dir < 4; ++dir) {
+			int next = neighbors[cell * 4 + dir];
+			if (next < 0 || !isFree(next)) continue;
+			int label = region[next];
+			if (label != NO_REGION && (biggest == NO_REGION || regionSize[label] > regionSize[biggest]))
+				biggest = label;
+		}
+
+		// with no regions around, the cell is a new region
+		if (biggest == NO_REGION) {
+			int label = newLabel();
+			region[cell] = label;
+			regionSize[label] = 1;
+			return;
+		}
+
+		region[cell] = biggest;
+		++regionSize[biggest];
+		for (int dir = 0; dir < 4; ++dir) {
+			int next = neighbors[cell * 4 + dir];
+			if (next >= 0 && isFree(next) && region[next] != biggest) {
+				int old = region[next];
+				flood(next, biggest);
+				spareLabel(old);
+			}
+		}
+	}
+
+	/**
+	 * Updates the regions for a cell becoming filled, splitting its region if it cut it in pieces
+	 * @param cell the cell
+	 */
+	private void occupy(int cell) {
+		int label = region[cell];
+		region[cell] = NO_REGION;
+		if (--regionSize[label] == 0) {
+			spareLabel(label);
+			return;
+		}
+
+		// a split is only possible if the free cells around it aren't connected right around it
+		if (!isConnectedAround(cell)) splitAround(cell, label);
+	}
+
+	/**
+	 * Checks if the free neighbors of a cell are connected by the ring of 8 cells around it
+	 * @param cell the cell
+	 * @return whether the free neighbors (up, right, down, left) are all in one run of free ring cells
+	 */
+	private boolean isConnectedAround(int cell) {
+		int row = cell / cols;
+		int col = cell % cols;
+		int start = -1;
+		for (int i = 0; i < RING.length; ++i) {
+			int r = row + RING[i][0];
+			int c = col + RING[i][1];
+			ring[i] = r >= 0 && r < rows && c >= 0 && c < cols && isFree(r * cols + c);
+			if (!ring[i]) start = i;
+		}
+		// the whole ring is free
+		if (start < 0) return true;
+
+		// go round the ring from a filled cell, counting runs which have a neighbor in them
+		int runs = 0;
+		boolean inRun = false;
+		boolean counted = false;
+		for (int step = 1; step <= RING.length; ++step) {
+			int i = (start + step) % RING.length;
+			if (!ring[i]) {
+				inRun = false;
+				continue;
+			}
+			if (!inRun) {
+				inRun = true;
+				counted = false;
+			}
+			// even positions are the neighbors, odd are diagonals
+			if (i % 2 == 0 && !counted) {
+				counted = true;
+				if (++runs > 1) return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Floods out from each free neighbor of a cell at the same time, to find which pieces
+	 * its region was cut into. Each piece which runs out of cells before the others gets a new
+	 * label, so only the smaller pieces are flooded all the way.
+	 * @param cell the cell which was filled
+	 * @param label the label of the region it was in
+	 */
+	private void splitAround(int cell, int label) {
+		++split;
+		int reachedCount = 0;
+		// each piece floods from a neighbor, with its own queue linked through link
+		int pieces = 0;
+		for (int dir = 0; dir < 4; ++dir) {
+			int next = neighbors[cell * 4 + dir];
+			if (next < 0 || !isFree(next)) continue;
+			reached[next] = split;
+			pieceOf[next] = (byte) pieces;
+			link[next] = -1;
+			pieceHead[pieces] = next;
+			pieceTail[pieces] = next;
+			pieceParent[pieces] = pieces;
+			queue[reachedCount++] = next;
+			++pieces;
+		}
+
+		// take turns flooding a cell from each piece, until at most one is still going
+		while (countGoing(pieces) > 1) {
+			for (int piece = 0; piece < pieces; ++piece) {
+				int from = pieceHead[piece];
+				if (from < 0) continue;
+				pieceHead[piece] = link[from];
+				for (int dir = 0; dir < 4; ++dir) {
+					int next = neighbors[from * 4 + dir];
+					if (next < 0 || !isFree(next)) continue;
+					if (reached[next] == split) {
+						// two pieces meeting are really one
+						int one = root(piece);
+						int two = root(pieceOf[next]);
+						if (one != two) pieceParent[one] = two;
+						continue;
+					}
+					reached[next] = split;
+					pieceOf[next] = (byte) piece;
+					link[next] = -1;
+					if (pieceHead[piece] < 0) pieceHead[piece] = next;
+					else link[pieceTail[piece]] = next;
+					pieceTail[piece] = next;
+					queue[reachedCount++] = next;
+				}
+			}
+		}
+
+		// the piece still going (or if none are, the first) keeps the old label
+		int keep = root(0);
+		for (int piece = 0; piece < pieces; ++piece) if (pieceHead[piece] >= 0) keep = root(piece);
+
+		// every other piece is finished, so gets a new label
+		for (int piece = 0; piece < pieces; ++piece) pieceLabel[piece] = NO_REGION;
+		for (int i = 0; i < reachedCount; ++i) {
+			int next = queue[i];
+			int piece = root(pieceOf[next]);
+			if (piece == keep) continue;
+			if (pieceLabel[piece] == NO_REGION) pieceLabel[piece] = newLabel();
+			region[next] = pieceLabel[piece];
+			++regionSize[pieceLabel[piece]];
+			--regionSize[label];
+		}
+	}
+
+	/**
+	 * Counts the pieces which are still flooding
+	 * @param pieces the # of pieces
+	 * @return the # of distinct pieces with cells left to flood from
+	 */
+	private int countGoing(int pieces) {
+		int going = 0;
+		int seen = 0;
+		for (int piece = 0; piece < pieces; ++piece) {
+			if (pieceHead[piece] < 0) continue;
+			int root = root(piece);
+			if ((seen & (1 << root)) == 0) {
+				seen |= 1 << root;
+				++going;
+			}
+		}
+		return going;
+	}
+
+	/**
+	 * Finds which piece a piece is really part of
+	 * @param piece the piece
+	 * @return the piece at the root of its tree
+	 */
+	private int root(int piece) {
+		while (pieceParent[piece] != piece) piece = pieceParent[piece];
+		return piece;
+	}
+
+	/**
+	 * Labels every free cell connected to a cell, which doesn't have the label yet
+	 * @param start the cell to flood from
+	 * @param label the label to give
+	 */
+	private void flood(int start, int label) {
+		int old = region[start];
+		region[start] = label;
+		++regionSize[label];
+		if (old != NO_REGION) --regionSize[old];
+		int size = 0;
+		queue[size++] = start;
+		for (int i = 0; i < size; ++i) {
+			for (int dir = 0; dir < 4; ++dir) {
+				int next = neighbors[queue[i] * 4 + dir];
+				if (next < 0 || !isFree(next) || region[next] == label) continue;
+				if (region[next] != NO_REGION) --regionSize[region[next]];
+				region[next] = label;
+				++regionSize[label];
+				queue[size++] = next;
+			}
+		}
+	}
+
+	/**
+	 * Takes a label for a new region
+	 * @return the label
+	 */
+	private int newLabel() {
+		++regions;
+		return spareLabels[--spareCount];
+	}
+
+	/**
+	 * Gives back the label of a region which is gone
+	 * @param label the label
+	 */
+	private void spareLabel(int label) {
+		--regions;
+		regionSize[label] = 0;
+		spareLabels[spareCount++] = label;
+	}
+
+	/**
+	 * Puts a head on a cell
+	 * @param head the head (color * 2 + which end)
+	 * @param cell the cell to put it on
+	 */
+	private void placeHead(int head, int cell) {
+		// the first time (an end-point), the cell must also be filled
+		if (isFree(cell)) fill(cell);
+		heads[head] = cell;
+		headAt[cell] = head;
+	}
+
+	/**
+	 * Counts the free neighbors of a cell
+	 * @param cell the cell
+	 * @return the # of free neighbors
+	 */
+	private int freeNeighbors(int cell) {
+		int count = 0;
+		for (int dir = 0; dir < 4; ++dir) {
+			int next = neighbors[cell * 4 + dir];
+			if (next >= 0 && isFree(next)) ++count;
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the cells from a head back to its end-point
+	 * @param cell the head's cell
+	 * @return the # of cells, including both the head and end-point
+	 */
+	private int trailLength(int cell) {
+		int length = 0;
+		for (; cell >= 0; cell = prev[cell]) ++length;
+		return length;
+	}
+
+	/**
+	 * Checks if two cells share a side
+	 * @param one the first cell
+	 * @param two the second cell
+	 * @return whether the cells are neighbors
+	 */
+	private boolean areNeighbors(int one, int two) {
+		for (int dir = 0; dir < 4; ++dir) if (neighbors[one * 4 + dir] == two) return true;
+		return false;
+	}
+
+	/**
+	 * Checks the filled-bitset for a cell
+	 * @param cell the cell to check
+	 * @return whether the cell is free
+	 */
+	private boolean isFree(int cell) {
+		return (filled[cell >>> 6] & (1L << cell)) == 0;
+	}
+
+	/**
+	 * Marks a cell as filled
+	 * @param cell the cell to fill
+	 */
+	private void fill(int cell) {
+		filled[cell >>> 6] |= 1L << cell;
+		--free;
+	}
+
+	/**
+	 * Marks a cell as free
+	 * @param cell the cell to free
+	 */
+	private void unfill(int cell) {
+		filled[cell >>> 6] &= ~(1L << cell);
+		++free;
+	}
+
+	/**
+	 * Converts a location to a cell index
+	 * @param row the row of the location
+	 * @param col the column of the location
+	 * @return the cell index
+	 */
+	private int index(int row, int col) {
+		if (row < 0 || row >= rows || col < 0 || col >= cols)
+			throw new IllegalArgumentException("Invalid tile location (" + row + ", " + col
+					+ ") in grid " + rows + "x" + cols);
+		return row * cols + col;
+	}
+
+	/**
+	 * Gets the Tile of a Grid at a cell index
+	 * @param grid the Grid
+	 * @param cell the cell index
+	 * @return the Tile at that cell
+	 */
+	private Tile tileAt(Grid grid, int cell) {
+		return grid.getTile(cell / cols, cell % cols);
+	}
+}
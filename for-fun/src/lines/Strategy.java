@@ -0,0 +1,126 @@
+package lines;
+
+/**
+ * How a Solver orders its search, so differently-ordered Solvers can race each other
+ * (see Portfolio). A Strategy chooses
+ * <ul>
+ * 	<li>which color's heads are tried first, when several have equally few moves</li>
+ * 	<li>which end-point of each color is tried first</li>
+ * 	<li>and optionally a seed, for randomly breaking ties between equally good moves and
+ * 	restarting the search (with a new random order) whenever it runs for too long</li>
+ * </ul>
+ * Restarts have a node budget which doubles each time, so a randomized search still
+ * finishes (and still proves a Level unsolvable) eventually.
+ * @author faith
+ */
+public final class Strategy {
+	/**
+	 * Orders for trying colors in
+	 * @author faith
+	 */
+	public enum ColorOrder {
+		/**
+		 * the order of the end-point sets in the Level
+		 */
+		GIVEN,
+		/**
+		 * colors with end-points closest together first
+		 */
+		NEAREST_FIRST,
+		/**
+		 * colors with end-points farthest apart first
+		 */
+		FARTHEST_FIRST,
+		/**
+		 * a random order, different for each restart (needs a seed)
+		 */
+		RANDOM
+	}
+
+	/**
+	 * the Strategy a Solver uses unless it is given another
+	 */
+	public static final Strategy DEFAULT = new Strategy("given", ColorOrder.GIVEN, false, 0, 0);
+
+	/**
+	 * a name for this Strategy, for reporting
+	 */
+	private final String name;
+	/**
+	 * the order to try colors in
+	 */
+	private final ColorOrder colorOrder;
+	/**
+	 * whether to try each color's second end-point before its first
+	 */
+	private final boolean secondEndFirst;
+	/**
+	 * the seed for random tie-breaking, or 0 for none
+	 */
+	private final long seed;
+	/**
+	 * the # of nodes before the first restart, or 0 never to restart
+	 */
+	private final long restartNodes;
+
+	/**
+	 * Initializes a Strategy
+	 * @param name a name for the Strategy, for reporting
+	 * @param colorOrder the order to try colors in
+	 * @param secondEndFirst whether to try each color's second end-point before its first
+	 * @param seed the seed for random tie-breaking, or 0 for none
+	 * @param restartNodes the # of nodes before the first restart, or 0 never to restart
+	 */
+	public Strategy(String name, ColorOrder colorOrder, boolean secondEndFirst, long seed, long restartNodes) {
+		// check for argument validity
+		if (colorOrder == ColorOrder.RANDOM && seed == 0)
+			throw new IllegalArgumentException("A random color order needs a seed");
+		if (restartNodes < 0) throw new IllegalArgumentException("Can't restart after " + restartNodes + " nodes");
+		if (restartNodes > 0 && seed == 0)
+			throw new IllegalArgumentException("Restarting needs a seed, or every restart would be the same");
+		this.name = name;
+		this.colorOrder = colorOrder;
+		this.secondEndFirst = secondEndFirst;
+		this.seed = seed;
+		this.restartNodes = restartNodes;
+	}
+
+	/**
+	 * Gets this.name
+	 * @return a name for this Strategy
+	 */
+	public String getName() {return name;}
+
+	/**
+	 * Gets this.colorOrder
+	 * @return the order to try colors in
+	 */
+	public ColorOrder getColorOrder() {return colorOrder;}
+
+	/**
+	 * Gets this.secondEndFirst
+	 * @return whether to try each color's second end-point before its first
+	 */
+	public boolean isSecondEndFirst() {return secondEndFirst;}
+
+	/**
+	 * Gets this.seed
+	 * @return the seed for random tie-breaking, or 0 for none
+	 */
+	public long getSeed() {return seed;}
+
+	/**
+	 * Gets this.restartNodes
+	 * @return the # of nodes before the first restart, or 0 never to restart
+	 */
+	public long getRestartNodes() {return restartNodes;}
+
+	/**
+	 * Checks if this Strategy breaks ties randomly
+	 * @return whether it has a seed
+	 */
+	public boolean isRandom() {return seed != 0;}
+
+	@Override
+	public String toString() {return name;}
+}
@@ -7,6 +7,9 @@ import java.awt.Graphics;
 /**
  * A cell in a grid for playing Lines, can have a path through self.
  * Contains various helper static methods.
+ * <br>
+ * A Tile either holds its own state, or is a short-lived view of one cell in a Cells
+ * (see Cells.tile), which holds the actual state of a whole grid.
  * @author faith
  *
  */
@@ -14,23 +17,35 @@ public abstract class Tile {
 	/**
 	 * the row of this Tile
 	 */
-	private int row;
+	private final int row;
 	/**
 	 * the column of this Tile
 	 */
-	private int col;
+	private final int col;
 	/**
-	 * the side that this Tile has a path coming IN
+	 * the side that this Tile has a path coming IN (unless this is a view)
 	 */
 	private byte in;
 	/**
-	 * the side that this Tile has a path going OUT
+	 * the side that this Tile has a path going OUT (unless this is a view)
 	 */
 	private byte out;
 	/**
-	 * the color of the path through this Tile
+	 * the color of the path through this Tile (unless this is a view)
 	 */
 	private Color color;
+	/**
+	 * the kind of cell this Tile is (unless this is a view)
+	 */
+	private final byte kind;
+	/**
+	 * the cells which hold this Tile's path and color, or null if this Tile holds its own
+	 */
+	private final Cells cells;
+	/**
+	 * the # of this Tile's cell in cells
+	 */
+	private final int cell;
 	
 	// directions, meant to be used for in and out values
 	
@@ -84,12 +99,41 @@ public abstract class Tile {
 	 * @param color the color of this Tile
 	 */
 	public Tile(int row, int col, Color color) {
+		this(row, col, color, Cells.PATH);
+	}
+	
+	/**
+	 * Initializes the location and color of a Tile with no path, which is not in any Grid
+	 * @param row the row of this Tile
+	 * @param col the column of this Tile
+	 * @param color the color of this Tile
+	 * @param kind the kind of cell this Tile is (see Cells)
+	 */
+	protected Tile(int row, int col, Color color, byte kind) {
 		this.row = row;
 		this.col = col;
 		this.color = color;
+		this.kind = kind;
 		// no path
 		in = NOT_SET;
 		out = NOT_SET;
+		// and this Tile holds its own state
+		cells = null;
+		cell = -1;
+	}
+	
+	/**
+	 * Initializes a Tile as a view of a cell
+	 * @param cells the cells which hold this Tile's state
+	 * @param cell the # of this Tile's cell
+	 */
+	protected Tile(Cells cells, int cell) {
+		this.cells = cells;
+		this.cell = cell;
+		row = cells.getRow(cell);
+		col = cells.getCol(cell);
+		// the state is all in cells
+		kind = cells.getKind(cell);
 	}
 	
 	/**
@@ -108,25 +152,34 @@ public abstract class Tile {
 	 * Gets this.in
 	 * @return the side which a path enters this Tile
 	 */
-	public byte getIn() {return in;}
+	public byte getIn() {return cells == null ? in : cells.getIn(cell);}
 	
 	/**
 	 * Gets this.out
 	 * @return the side which a path exits this Tile
 	 */
-	public byte getOut() {return out;}
+	public byte getOut() {return cells == null ? out : cells.getOut(cell);}
 	
 	/**
 	 * Gets this.color
 	 * @return the color of the path through this Tile
 	 */
-	public Color getColor() {return color;}
+	public Color getColor() {return cells == null ? color : cells.getColor(cell);}
 	
 	/**
 	 * Sets the color of this Tile
 	 * @param color the color of the path through this Tile
 	 */
-	public void setColor(Color color) {this.color = color;}
+	public void setColor(Color color) {
+		if (cells == null) this.color = color;
+		else cells.setColor(cell, color);
+	}
+	
+	/**
+	 * Gets the kind of cell this Tile is
+	 * @return Cells.PATH, Cells.END, or Cells.BLOCK
+	 */
+	public byte getKind() {return kind;}
 	
 	/**
 	 * Sets the in-side of this Tile
@@ -134,22 +187,33 @@ public abstract class Tile {
 	 * @throws InvalidPathException if a path already enters this Tile
 	 */
 	public void setIn(byte side) throws InvalidPathException {
-		if (hasIn()) throw new InvalidPathException(side, this);
+		if (!canSetIn(side)) throw new InvalidPathException(side, this);
 		if (side != UP && side != DOWN && side != LEFT && side != RIGHT)
 			throw new IllegalArgumentException("Invalid side #");
-		in = side;
+		if (cells == null) in = side;
+		else cells.setIn(cell, side);
 	}
 	
+	/**
+	 * Checks if a path could enter this Tile, without changing anything
+	 * @param side the side a path would enter this Tile
+	 * @return whether setIn(side) would succeed
+	 */
+	public boolean canSetIn(byte side) {return Cells.canSetIn(kind, getIn(), getOut());}
+	
 	/**
 	 * Removes the in-side of this Tile
 	 */
-	public void removeIn() {in = NOT_SET;}
+	public void removeIn() {
+		if (cells == null) in = NOT_SET;
+		else cells.setIn(cell, NOT_SET);
+	}
 	
 	/**
 	 * Checks if there is an in-side for this Tile
 	 * @return if a path enters this Tile
 	 */
-	public boolean hasIn() {return in != NOT_SET;}
+	public boolean hasIn() {return getIn() != NOT_SET;}
 	
 	/**
 	 * Sets the out-side of this Tile
@@ -157,22 +221,45 @@ public abstract class Tile {
 	 * @throws InvalidPathException
 	 */
 	public void setOut(byte side) throws InvalidPathException {
-		if (hasOut()) throw new InvalidPathException(this, side);
+		if (!canSetOut(side)) throw new InvalidPathException(this, side);
 		if (side != UP && side != DOWN && side != LEFT && side != RIGHT)
 			throw new IllegalArgumentException("Invalid side #");
-		out = side;
+		if (cells == null) out = side;
+		else cells.setOut(cell, side);
 	}
 	
+	/**
+	 * Checks if a path could exit this Tile, without changing anything
+	 * @param side the side a path would exit this Tile
+	 * @return whether setOut(side) would succeed
+	 */
+	public boolean canSetOut(byte side) {return Cells.canSetOut(kind, getIn(), getOut());}
+	
 	/**
 	 * Removes the out-side of this Tile
 	 */
-	public void removeOut() {out = NOT_SET;}
+	public void removeOut() {
+		if (cells == null) out = NOT_SET;
+		else cells.setOut(cell, NOT_SET);
+	}
 	
 	/**
 	 * Checks if there is an out-side for this Tile
 	 * @return if a path exits this Tile
 	 */
-	public boolean hasOut() {return out != NOT_SET;}
+	public boolean hasOut() {return getOut() != NOT_SET;}
+	
+	/**
+	 * Swaps the in- and out-sides of this Tile, for when the Path through it is reversed
+	 */
+	void reverse() {
+		if (cells == null) {
+			byte side = in;
+			in = out;
+			out = side;
+		}
+		else cells.reverse(cell);
+	}
 	
 	/**
 	 * Resets the Tile's state
@@ -235,6 +322,19 @@ public abstract class Tile {
 	 * @throws InvalidPathException if no side connects these Tiles
 	 */
 	public static final byte sideConnecting(Tile from, Tile to) throws InvalidPathException {
+		byte side = sideBetween(from, to);
+		// if no side was found, no path exists
+		if (side == NOT_SET) throw new InvalidPathException(from, to);
+		return side;
+	}
+	
+	/**
+	 * Find a side connecting two Tiles, without throwing if there is none
+	 * @param from the Tile the path will exit from
+	 * @param to the Tile the path will enter
+	 * @return the value of the side connecting the Tiles, or NOT_SET if they are not adjacent
+	 */
+	public static final byte sideBetween(Tile from, Tile to) {
 		// if the rows match
 		if (from.getRow() == to.getRow()) {
 			// determine left or right if off by a column
@@ -247,17 +347,64 @@ public abstract class Tile {
 			if (from.getRow() + 1 == to.getRow()) return DOWN;
 			if (from.getRow() - 1 == to.getRow()) return UP;
 		}
-		// if none of that worked, no path exists
-		throw new InvalidPathException(from, to);
+		// if none of that worked, no side connects them
+		return NOT_SET;
 	}
 	
 	public void draw(Graphics window) {
+		drawBackground(window);
+		drawPath(window);
+	}
+	
+	/**
+	 * Draws the part of this Tile which never changes (everything but the path through it)
+	 * @param window the window to draw on
+	 */
+	public void drawBackground(Graphics window) {drawBackground(window, row, col);}
+	
+	/**
+	 * Draws the path through this Tile (if any), over its background
+	 * @param window the window to draw on
+	 */
+	public void drawPath(Graphics window) {drawPath(window, row, col, getIn(), getOut(), getColor());}
+	
+	/**
+	 * Draws the background of a cell, without making a Tile for it
+	 * @param window the window to draw on
+	 * @param cells the cells the cell is in
+	 * @param cell the # of the cell
+	 */
+	static void drawBackground(Graphics window, Cells cells, int cell) {
+		int row = cells.getRow(cell);
+		int col = cells.getCol(cell);
+		// each kind of Tile draws its own background
+		byte kind = cells.getKind(cell);
+		if (kind == Cells.END) EndTile.drawBackground(window, row, col, cells.getColor(cell));
+		else if (kind == Cells.BLOCK) BlockTile.drawBackground(window, row, col);
+		else drawBackground(window, row, col);
+	}
+	
+	/**
+	 * Draws the path through a cell (if any), without making a Tile for it
+	 * @param window the window to draw on
+	 * @param cells the cells the cell is in
+	 * @param cell the # of the cell
+	 */
+	static void drawPath(Graphics window, Cells cells, int cell) {
+		drawPath(window, cells.getRow(cell), cells.getCol(cell), 
+				cells.getIn(cell), cells.getOut(cell), cells.getColor(cell));
+	}
+	
+	/**
+	 * Draws a plain Tile background at a location
+	 * @param window the window to draw on
+	 * @param row the row of the Tile
+	 * @param col the column of the Tile
+	 */
+	static void drawBackground(Graphics window, int row, int col) {
 		// anchor coordinates (upper left corner)
-		int anchorX = getCol() * SIZE;
-		int anchorY = getRow() *  SIZE;
-		// convenience fractions of SIZE 
-		int third = SIZE / 3;
-		int half = SIZE / 2;
+		int anchorX = col * SIZE;
+		int anchorY = row *  SIZE;
 		
 		// draw background of tile
 		window.setColor(BLANK);
@@ -265,8 +412,27 @@ public abstract class Tile {
 		// draw edges of tile
 		window.setColor(Color.black);
 		window.drawRect(anchorX, anchorY,  SIZE,  SIZE);
+	}
+	
+	/**
+	 * Draws a path through a Tile at a location
+	 * @param window the window to draw on
+	 * @param row the row of the Tile
+	 * @param col the column of the Tile
+	 * @param in the side the path enters, or NOT_SET
+	 * @param out the side the path exits, or NOT_SET
+	 * @param color the color of the path
+	 */
+	private static void drawPath(Graphics window, int row, int col, byte in, byte out, Color color) {
+		// anchor coordinates (upper left corner)
+		int anchorX = col * SIZE;
+		int anchorY = row *  SIZE;
+		// convenience fractions of SIZE 
+		int third = SIZE / 3;
+		int half = SIZE / 2;
+		
 		// set color to the path-color through this Tile
-		window.setColor(getColor());
+		window.setColor(color);
 		// check for path through any side, and draw rectangle if found
 		if (in == UP || out == UP)
 			window.fillRect(anchorX + third, anchorY, third, half);
@@ -282,7 +448,7 @@ public abstract class Tile {
 	 * Determines if this Tile is in an win-state
 	 * @return whether this Tile requires a state change to be finished
 	 */
-	public abstract boolean isComplete();
+	public boolean isComplete() {return Cells.isComplete(kind, getIn(), getOut());}
 	
 	public boolean equals(Object other) {
 		// only check if a Tile or subclass of Tile
@@ -290,8 +456,8 @@ public abstract class Tile {
 			// cast to Tile for convienence
 			Tile t = (Tile) other;
 			// all instance variables must match
-			return row == t.getRow() && col == t.getCol() && in == t.getIn() 
-					&& out == t.getOut() && color.equals(t.getColor());
+			return row == t.getRow() && col == t.getCol() && getIn() == t.getIn() 
+					&& getOut() == t.getOut() && getColor().equals(t.getColor());
 		}
 		
 		else return false;
@@ -301,8 +467,8 @@ public abstract class Tile {
 		// start with location
 		String ret = "Tile at (" + row + ", " + col + ")";
 		// if in/out are present, add those
-		if (hasIn()) ret += " in at " + Tile.sideToString(in);
-		if (hasOut()) ret += " out at " + Tile.sideToString(out);
+		if (hasIn()) ret += " in at " + Tile.sideToString(getIn());
+		if (hasOut()) ret += " out at " + Tile.sideToString(getOut());
 		
 		return ret;
 	}
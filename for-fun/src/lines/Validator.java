@@ -0,0 +1,351 @@
+package lines;
+
+// for reading the level file
+import java.io.File;
+import java.io.IOException;
+
+// for the problems found, and checking Levels in parallel
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+// for giving up on a Level which takes too long to count
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Checks a file of Levels (like levels.dat) without opening any windows, by
+ * <ul>
+ * 	<li>reading it strictly, so a badly-formatted file says where it goes wrong</li>
+ * 	<li>checking each Level's layout (grid size, end-points and blocks inside the grid, no cell used twice)</li>
+ * 	<li>and counting each Level's solutions (none, one, or more), in parallel,
+ * 	giving up on any Level that takes longer than a time budget</li>
+ * </ul>
+ * A valid Level has no problems and a solution. Having more than one solution only gets a warning,
+ * and a Level that timed out before a solution was found is neither valid nor invalid.
+ * A Level whose check threw (say, the solver running out of memory) gets an error in its Report,
+ * and the other Levels are still checked and reported.
+ * <br>
+ * main exits with 1 if any Level is invalid or errored, otherwise 2 if any timed out unsolved, otherwise 0.
+ * @author faith
+ */
+public class Validator {
+	/**
+	 * the # of solutions to count up to (any more is just "more than one")
+	 */
+	private static final int SOLUTION_LIMIT = 2;
+	/**
+	 * the # of seconds to count each Level's solutions for, unless main is given another budget
+	 */
+	private static final int DEFAULT_BUDGET = 10;
+
+	/**
+	 * What was found when checking one Level
+	 * @author faith
+	 */
+	public static class Report {
+		/**
+		 * the # of the Level in its file
+		 */
+		private final int index;
+		/**
+		 * the Level checked
+		 */
+		private final Level level;
+		/**
+		 * what is wrong with the Level's layout
+		 */
+		private final ArrayList<String> problems;
+		/**
+		 * the # of solutions, up to SOLUTION_LIMIT (or -1 if the layout was too wrong to solve)
+		 */
+		private final int solutions;
+		/**
+		 * whether counting ran out of time (so solutions is only how many were found by then)
+		 */
+		private final boolean timedOut;
+		/**
+		 * the # of search nodes visited counting solutions
+		 */
+		private final long nodes;
+		/**
+		 * how long checking took, in milliseconds
+		 */
+		private final long millis;
+		/**
+		 * what was thrown checking the Level, or null if checking finished
+		 */
+		private final Throwable error;
+
+		/**
+		 * Initializes a Report
+		 * @param index the # of the Level in its file
+		 * @param level the Level checked
+		 * @param problems what is wrong with the Level's layout
+		 * @param solutions the # of solutions, or -1 if not counted
+		 * @param timedOut whether counting ran out of time
+		 * @param nodes the # of search nodes visited
+		 * @param millis how long checking took, in milliseconds
+		 */
+		private Report(int index, Level level, ArrayList<String> problems, int solutions, boolean timedOut,
+				long nodes, long millis) {
+			this.index = index;
+			this.level = level;
+			this.problems = problems;
+			this.solutions = solutions;
+			this.timedOut = timedOut;
+			this.nodes = nodes;
+			this.millis = millis;
+			error = null;
+		}
+
+		/**
+		 * Initializes a Report for a Level whose check threw
+		 * @param index the # of the Level in its file
+		 * @param level the Level checked
+		 * @param error what was thrown
+		 * @param millis how long checking took before it threw, in milliseconds
+		 */
+		private Report(int index, Level level, Throwable error, long millis) {
+			this.index = index;
+			this.level = level;
+			this.error = error;
+			this.millis = millis;
+			// nothing was found before it threw
+			problems = new ArrayList<String>();
+			solutions = -1;
+			timedOut = false;
+			nodes = 0;
+		}
+
+		/**
+		 * Gets this.index
+		 * @return the # of the Level in its file
+		 */
+		public int getIndex() {return index;}
+
+		/**
+		 * Gets this.problems
+		 * @return what is wrong with the Level's layout
+		 */
+		public ArrayList<String> getProblems() {return problems;}
+
+		/**
+		 * Gets this.solutions
+		 * @return the # of solutions (up to 2, and only those found in time if timed out), or -1 if not counted
+		 */
+		public int getSolutions() {return solutions;}
+
+		/**
+		 * Gets this.timedOut
+		 * @return whether counting ran out of time
+		 */
+		public boolean isTimedOut() {return timedOut;}
+
+		/**
+		 * Gets this.error
+		 * @return what was thrown checking the Level, or null if checking finished
+		 */
+		public Throwable getError() {return error;}
+
+		/**
+		 * Checks if checking the Level threw, so nothing is known about it
+		 * @return whether there is an error
+		 */
+		public boolean isErrored() {return error != null;}
+
+		/**
+		 * Checks if the Level is valid
+		 * @return whether it has no problems and a solution
+		 */
+		public boolean isValid() {return problems.isEmpty() && solutions >= 1;}
+
+		/**
+		 * Checks if the Level is invalid (as opposed to not checked in time)
+		 * @return whether it has problems, or was shown to have no solution
+		 */
+		public boolean isInvalid() {return !problems.isEmpty() || (solutions == 0 && !timedOut);}
+
+		/**
+		 * Checks if the Level should get a warning
+		 * @return whether it is valid, but not shown to have exactly one solution
+		 */
+		public boolean isWarning() {return isValid() && (solutions > 1 || timedOut);}
+
+		@Override
+		public String toString() {
+			String ret = "Level #" + index + " (" + level.getRows() + "x" + level.getCols() + ", "
+					+ level.getSets().length + " colors): ";
+			if (error != null) ret += "error: " + error;
+			else if (solutions < 0) ret += "not solved";
+			else if (timedOut) ret += "timed out" + (solutions > 0 ? " (solvable, uniqueness unknown)" : "");
+			else if (solutions == 0) ret += "no solution";
+			else if (solutions == 1) ret += "unique solution";
+			else ret += "warning: multiple solutions";
+			ret += ", " + nodes + " nodes, " + millis + "ms";
+			for (String problem : problems) ret += "\n\t" + problem;
+			return ret;
+		}
+	}
+
+	/**
+	 * Never initialize a Validator, it only has static methods
+	 */
+	private Validator() {}
+
+	/**
+	 * Checks one Level, however long it takes
+	 * @param index the # of the Level in its file
+	 * @param level the Level to check
+	 * @return what was found
+	 */
+	public static Report check(int index, Level level) {
+		return check(index, level, null);
+	}
+
+	/**
+	 * Checks one Level, until it is checked or stop is set
+	 * @param index the # of the Level in its file
+	 * @param level the Level to check
+	 * @param stop set by another thread to stop counting solutions, or null never to stop
+	 * @return what was found
+	 */
+	public static Report check(int index, Level level, AtomicBoolean stop) {
+		long start = System.nanoTime();
+		ArrayList<String> problems = level.findProblems();
+
+		// a Level with a broken layout can't be put on a Grid to solve
+		if (!problems.isEmpty()) return new Report(index, level, problems, -1, false, 0, 0);
+
+		Solver solver = new Solver(level);
+		int solutions = solver.countSolutions(SOLUTION_LIMIT, stop);
+		return new Report(index, level, problems, solutions, solver.isCancelled(), solver.getNodes(),
+				(System.nanoTime() - start) / 1_000_000);
+	}
+
+	/**
+	 * Checks many Levels, in parallel
+	 * @param levels the Levels to check
+	 * @param threads the # of threads to check with
+	 * @param budget the # of milliseconds to count each Level's solutions for
+	 * @return what was found for each Level, in the same order (a Level whose check threw
+	 * gets an errored Report, rather than stopping the others)
+	 */
+	public static Report[] check(Level[] levels, int threads, long budget) {
+		// one thread to stop Levels which run out of time
+		ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1);
+		timer.setRemoveOnCancelPolicy(true);
+
+		// one task for each Level
+		ArrayList<Callable<Report>> tasks = new ArrayList<Callable<Report>>();
+		for (int i = 0; i < levels.length; ++i) {
+			int index = i;
+			tasks.add(() -> checkInTime(index, levels[index], budget, timer));
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			Report[] reports = new Report[levels.length];
+			List<Future<Report>> futures = pool.invokeAll(tasks);
+			for (int i = 0; i < levels.length; ++i) {
+				// checkInTime reports anything its check throws, but the task itself can still fail
+				try {
+					reports[i] = futures.get(i).get();
+				}
+				catch (ExecutionException e) {
+					reports[i] = new Report(i, levels[i], e.getCause(), 0);
+				}
+			}
+			return reports;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while checking levels", e);
+		}
+		finally {
+			pool.shutdown();
+			timer.shutdownNow();
+		}
+	}
+
+	/**
+	 * Checks one Level, giving up on counting its solutions when a budget runs out
+	 * @param index the # of the Level in its file
+	 * @param level the Level to check
+	 * @param budget the # of milliseconds to count solutions for (from when counting starts)
+	 * @param timer what to stop counting with
+	 * @return what was found, or an errored Report if checking threw anything
+	 */
+	private static Report checkInTime(int index, Level level, long budget, ScheduledExecutorService timer) {
+		long start = System.nanoTime();
+		AtomicBoolean stop = new AtomicBoolean();
+		ScheduledFuture<?> alarm = timer.schedule(() -> stop.set(true), budget, TimeUnit.MILLISECONDS);
+		try {
+			return check(index, level, stop);
+		}
+		// even an Error (like running out of memory or stack) only fails this Level
+		catch (Throwable e) {
+			return new Report(index, level, e, (System.nanoTime() - start) / 1_000_000);
+		}
+		finally {
+			alarm.cancel(false);
+		}
+	}
+
+	/**
+	 * Checks a file of Levels, printing what was found
+	 * @param args the file to check, and optionally the # of threads to check with
+	 * and the # of seconds to give each Level
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.out.println("Usage: Validator file [threads] [seconds per level]");
+			return;
+		}
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		long budget = (args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_BUDGET) * 1000L;
+
+		Level[] levels;
+		try {
+			levels = Level.readLevels(new File(args[0]));
+		}
+		catch (IOException e) {
+			System.out.println("Couldn't read " + args[0] + ": " + e.getMessage());
+			System.exit(1);
+			return;
+		}
+		catch (IllegalArgumentException e) {
+			System.out.println(args[0] + " is not a valid level file: " + e.getMessage());
+			System.exit(1);
+			return;
+		}
+
+		long start = System.nanoTime();
+		Report[] reports = check(levels, threads, budget);
+		long millis = (System.nanoTime() - start) / 1_000_000;
+
+		// print every Report, and count each kind
+		int valid = 0;
+		int warnings = 0;
+		int invalid = 0;
+		int errors = 0;
+		for (Report report : reports) {
+			System.out.println(report);
+			if (report.isValid()) ++valid;
+			if (report.isWarning()) ++warnings;
+			if (report.isInvalid()) ++invalid;
+			if (report.isErrored()) ++errors;
+		}
+		int unchecked = levels.length - valid - invalid - errors;
+		System.out.println(levels.length + " levels checked in " + millis + "ms on " + threads + " threads: "
+				+ valid + " valid (" + warnings + " with warnings), " + invalid + " invalid, "
+				+ errors + " errored, " + unchecked + " timed out");
+		if (invalid > 0 || errors > 0) System.exit(1);
+		if (unchecked > 0) System.exit(2);
+	}
+}
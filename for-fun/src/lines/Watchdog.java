@@ -0,0 +1,693 @@
+package lines;
+
+// for growing lists of cells
+import java.util.Arrays;
+
+/**
+ * Watches a Grid as it is played, to notice as soon as it can no longer be won without
+ * taking moves back. It keeps
+ * <ul>
+ * 	<li>every free cell (a PathTile with no Path) labeled with its region of connected free cells,
+ * 	updated only around the cells that changed: freeing a cell merges the smaller neighboring
+ * 	regions into the biggest, and filling a cell re-floods only if it may have split its region,
+ * 	and then only the smaller pieces</li>
+ * 	<li>the heads of each unfinished color (the tips of its Paths, or its unused EndTiles)</li>
+ * 	<li>and a count of dead-end cells, free cells with fewer than 2 free or head neighbors</li>
+ * </ul>
+ * so a check costs about as much as the move which changed the Grid. The Grid is dead if
+ * some cell is a dead end, the heads of some color share no region (and are not next to
+ * each other), or some region is not shared by the heads of any color.
+ * <br>
+ * These are only some of the ways a Grid can be dead, so a Grid which is not dead
+ * may still not be solvable.
+ * @author faith
+ */
+final class Watchdog {
+	/**
+	 * the Grid being watched
+	 */
+	private final Grid grid;
+	/**
+	 * the cells of the Grid
+	 */
+	private final Cells cells;
+	/**
+	 * whether each cell is free, as of the last check
+	 */
+	private final boolean[] free;
+	/**
+	 * the region label of each free cell, or NO_REGION
+	 */
+	private final int[] region;
+	/**
+	 * the # of cells in each region, by label
+	 */
+	private final int[] regionSize;
+	/**
+	 * labels not used by any region, as a stack
+	 */
+	private final int[] spareLabels;
+	/**
+	 * the # of labels in spareLabels
+	 */
+	private int spareCount;
+	/**
+	 * the # of regions
+	 */
+	private int regions;
+	/**
+	 * the cells whose Path may have changed since the last check
+	 */
+	private int[] dirty;
+	/**
+	 * the # of cells in dirty
+	 */
+	private int dirtyCount;
+	/**
+	 * whether each cell is in dirty
+	 */
+	private final boolean[] isDirty;
+	/**
+	 * the colors whose Paths may have changed since the last check
+	 */
+	private int[] dirtyColors;
+	/**
+	 * the # of colors in dirtyColors
+	 */
+	private int dirtyColorCount;
+	/**
+	 * whether each color is in dirtyColors
+	 */
+	private final boolean[] isDirtyColor;
+	/**
+	 * the cells which became free or not, or a head or not, during a check
+	 */
+	private int[] changed;
+	/**
+	 * the # of cells in changed
+	 */
+	private int changedCount;
+	/**
+	 * the head cells of each color (color * 2 + which end), or DONE if the color is connected
+	 */
+	private final int[] heads;
+	/**
+	 * somewhere to work out the new heads of the dirty colors, before changing heads
+	 */
+	private final int[] newHeads;
+	/**
+	 * whether each cell is a head
+	 */
+	private final boolean[] isHead;
+	/**
+	 * whether each cell is a dead end
+	 */
+	private final boolean[] deadEnd;
+	/**
+	 * the # of dead-end cells
+	 */
+	private int deadEnds;
+	/**
+	 * the cells which became dead ends, most recent on top (some may no longer be)
+	 */
+	private int[] deadStack;
+	/**
+	 * the # of cells in deadStack
+	 */
+	private int deadStackCount;
+
+	// scratch space for flooding regions
+
+	/**
+	 * a queue of cells to flood from, or the cells reached when splitting
+	 */
+	private final int[] queue;
+	/**
+	 * the next cell in the queue of each cell's piece, when splitting
+	 */
+	private final int[] link;
+	/**
+	 * the split each cell was last reached in
+	 */
+	private final int[] reached;
+	/**
+	 * the # of splits so far
+	 */
+	private int split;
+	/**
+	 * the piece each cell was reached by, when splitting
+	 */
+	private final byte[] pieceOf;
+	/**
+	 * the check each region was last marked as fillable in, by label
+	 */
+	private final int[] marked;
+	/**
+	 * the # of checks so far
+	 */
+	private int check;
+	/**
+	 * somewhere to put the neighbors of a cell
+	 */
+	private final int[] around;
+	/**
+	 * somewhere else to put the neighbors of a cell, for inside loops over around
+	 */
+	private final int[] aroundInner;
+	/**
+	 * whether each cell in the ring around a cell is free (see RING)
+	 */
+	private final boolean[] ring;
+
+	/**
+	 * the region of a cell which is not free
+	 */
+	private static final int NO_REGION = -1;
+	/**
+	 * the head of a color which is already connected
+	 */
+	private static final int DONE = -1;
+	/**
+	 * the cells around a cell in clockwise order from the top, as {row change, column change}
+	 */
+	private static final int[][] RING = {{-1, 0}, {-1, 1}, {0, 1}, {1, 1}, {1, 0}, {1, -1}, {0, -1}, {-1, -1}};
+
+	/**
+	 * Starts watching a Grid
+	 * @param grid the Grid to watch (which will touch() each cell whose Path changes)
+	 */
+	Watchdog(Grid grid) {
+		this.grid = grid;
+		cells = grid.getCells();
+		int size = cells.size();
+
+		// initialize all arrays to the right size
+		free = new boolean[size];
+		region = new int[size];
+		regionSize = new int[size];
+		spareLabels = new int[size];
+		dirty = new int[16];
+		isDirty = new boolean[size];
+		changed = new int[16];
+		heads = new int[grid.getSetCount() * 2];
+		newHeads = new int[heads.length];
+		dirtyColors = new int[heads.length / 2];
+		isDirtyColor = new boolean[heads.length / 2];
+		isHead = new boolean[size];
+		deadEnd = new boolean[size];
+		queue = new int[size];
+		link = new int[size];
+		reached = new int[size];
+		pieceOf = new byte[size];
+		marked = new int[size];
+		around = new int[4];
+		aroundInner = new int[4];
+		ring = new boolean[RING.length];
+
+		// every label is spare, with 0 on top
+		for (int label = 0; label < size; ++label) spareLabels[label] = size - 1 - label;
+		spareCount = size;
+		Arrays.fill(region, NO_REGION);
+		Arrays.fill(heads, DONE);
+		deadStack = new int[16];
+
+		// find which cells are free, then flood each region once
+		for (int cell = 0; cell < size; ++cell) free[cell] = isFreeNow(cell);
+		for (int cell = 0; cell < size; ++cell) {
+			if (free[cell] && region[cell] == NO_REGION) flood(cell, newLabel());
+			// every cell's dead-end-ness needs working out
+			addChanged(cell);
+		}
+		// and every color's heads
+		for (int color = 0; color < heads.length / 2; ++color) touchColor(color);
+	}
+
+	/**
+	 * Notes that the Path through a cell may have changed
+	 * @param cell the # of the cell
+	 * @param oldId the slot of the Path which went through it, or Grid.NO_PATH
+	 * @param newId the slot of the Path which goes through it now, or Grid.NO_PATH
+	 */
+	void touch(int cell, int oldId, int newId) {
+		// the tips of the Paths changed can only have moved if their cells did
+		if (oldId != Grid.NO_PATH) touchColor(oldId / 2);
+		if (newId != Grid.NO_PATH) touchColor(newId / 2);
+
+		if (isDirty[cell]) return;
+		isDirty[cell] = true;
+		if (dirtyCount == dirty.length) dirty = Arrays.copyOf(dirty, dirtyCount * 2);
+		dirty[dirtyCount++] = cell;
+	}
+
+	/**
+	 * Notes that the heads of a color may have changed
+	 * @param color the color (end-point set)
+	 */
+	private void touchColor(int color) {
+		if (isDirtyColor[color]) return;
+		isDirtyColor[color] = true;
+		dirtyColors[dirtyColorCount++] = color;
+	}
+
+	/**
+	 * Brings everything up to date with the Grid, and checks if it is dead
+	 * @return why the Grid can no longer be won, or null if it is not known to be dead
+	 */
+	String check() {
+		// update the regions around each cell which became free or not
+		for (int i = 0; i < dirtyCount; ++i) {
+			int cell = dirty[i];
+			isDirty[cell] = false;
+			boolean nowFree = isFreeNow(cell);
+			if (nowFree == free[cell]) continue;
+			if (nowFree) release(cell);
+			else occupy(cell);
+			addChanged(cell);
+		}
+		dirtyCount = 0;
+
+		updateHeads();
+
+		// a cell's dead-end-ness only changes if it or a neighbor changed
+		for (int i = 0; i < changedCount; ++i) {
+			int cell = changed[i];
+			updateDeadEnd(cell);
+			int count = cells.neighborsOf(cell, around);
+			for (int n = 0; n < count; ++n) updateDeadEnd(around[n]);
+		}
+		changedCount = 0;
+
+		if (deadEnds > 0) return "The tile at " + location(findDeadEnd()) + " is a dead end";
+
+		// every unconnected color's heads have to be next to each other, or share a region
+		++check;
+		int fillable = 0;
+		for (int color = 0; color < heads.length / 2; ++color) {
+			int one = heads[color * 2];
+			int two = heads[color * 2 + 1];
+			if (one == DONE) continue;
+
+			// mark each region both heads touch (it could be filled by this color)
+			boolean shared = false;
+			int count = cells.neighborsOf(one, around);
+			for (int n = 0; n < count; ++n) {
+				int label = free[around[n]] ? region[around[n]] : NO_REGION;
+				if (label == NO_REGION || !touchesRegion(two, label)) continue;
+				shared = true;
+				if (marked[label] != check) {
+					marked[label] = check;
+					++fillable;
+				}
+			}
+			// heads next to each other can always just join
+			if (!shared && !areNeighbors(one, two)) return "The path from " + location(one) + " can no longer reach " + location(two);
+		}
+
+		// every region has to be fillable by some color
+		if (fillable < regions) return "Some empty tiles are walled off from every path";
+		return null;
+	}
+
+	/**
+	 * Works out the current head cells of each color, noting cells which stopped or started being heads
+	 */
+	private void updateHeads() {
+		for (int i = 0; i < dirtyColorCount; ++i) {
+			int color = dirtyColors[i];
+			int one = tipOf(color * 2);
+			int two = tipOf(color * 2 + 1);
+			// once either end is reached from the other, the color is connected
+			if (one == DONE || two == DONE) one = two = DONE;
+			newHeads[color * 2] = one;
+			newHeads[color * 2 + 1] = two;
+		}
+
+		// clear every old head before setting any new one, since one head's old cell can be another's new cell
+		for (int i = 0; i < dirtyColorCount; ++i) {
+			for (int head = dirtyColors[i] * 2; head <= dirtyColors[i] * 2 + 1; ++head) {
+				if (heads[head] == newHeads[head] || heads[head] == DONE) continue;
+				isHead[heads[head]] = false;
+				addChanged(heads[head]);
+			}
+		}
+		for (int i = 0; i < dirtyColorCount; ++i) {
+			isDirtyColor[dirtyColors[i]] = false;
+			for (int head = dirtyColors[i] * 2; head <= dirtyColors[i] * 2 + 1; ++head) {
+				if (heads[head] == newHeads[head]) continue;
+				heads[head] = newHeads[head];
+				if (heads[head] == DONE) continue;
+				isHead[heads[head]] = true;
+				addChanged(heads[head]);
+			}
+		}
+		dirtyColorCount = 0;
+	}
+
+	/**
+	 * Finds the tip of the Path started from an EndTile
+	 * @param slot the index of the EndTile in the Grid (see Grid.endIndex)
+	 * @return the last cell of its Path, the EndTile's cell if it is unused, or DONE if its color is connected
+	 */
+	private int tipOf(int slot) {
+		Path path = grid.getPathFrom(slot);
+		if (path != null) {
+			int last = path.lastCell();
+			// a Path which has reached an EndTile is complete
+			return cells.getKind(last) == Cells.END ? DONE : last;
+		}
+		// an EndTile with no Path of its own is either unused, or the end of the other Path
+		int end = grid.getEndCell(slot);
+		return grid.getOwner(end) == Grid.NO_PATH ? end : DONE;
+	}
+
+	/**
+	 * Works out whether a cell is a dead end
+	 * @param cell the # of the cell
+	 */
+	private void updateDeadEnd(int cell) {
+		boolean dead = false;
+		if (free[cell]) {
+			// a free cell needs a way in and a way out
+			int usable = 0;
+			int count = cells.neighborsOf(cell, aroundInner);
+			for (int n = 0; n < count; ++n) if (free[aroundInner[n]] || isHead[aroundInner[n]]) ++usable;
+			dead = usable < 2;
+		}
+
+		if (dead == deadEnd[cell]) return;
+		deadEnd[cell] = dead;
+		if (dead) {
+			++deadEnds;
+			if (deadStackCount == deadStack.length) deadStack = Arrays.copyOf(deadStack, deadStackCount * 2);
+			deadStack[deadStackCount++] = cell;
+		}
+		else --deadEnds;
+	}
+
+	/**
+	 * Finds a dead-end cell
+	 * @return the # of a cell which is a dead end, or -1 if there are none
+	 */
+	private int findDeadEnd() {
+		// throw away cells which stopped being dead ends since they were added
+		while (deadStackCount > 0 && !deadEnd[deadStack[deadStackCount - 1]]) --deadStackCount;
+		return deadStackCount > 0 ? deadStack[deadStackCount - 1] : -1;
+	}
+
+	/**
+	 * Updates the regions for a cell becoming free, merging the regions around it
+	 * @param cell the # of the cell
+	 */
+	private void release(int cell) {
+		free[cell] = true;
+
+		// the biggest region around the cell takes in the cell, and the other regions
+		int count = cells.neighborsOf(cell, around);
+		int biggest = NO_REGION;
+		for (int n = 0; n < count; ++n) {
+			int label = free[around[n]] ? region[around[n]] : NO_REGION;
+			if (label != NO_REGION && (biggest == NO_REGION || regionSize[label] > regionSize[biggest]))
+				biggest = label;
+		}
+
+		// with no regions around, the cell is a new region
+		if (biggest == NO_REGION) {
+			int label = newLabel();
+			region[cell] = label;
+			regionSize[label] = 1;
+			return;
+		}
+
+		region[cell] = biggest;
+		++regionSize[biggest];
+		for (int n = 0; n < count; ++n) {
+			int next = around[n];
+			if (free[next] && region[next] != biggest) {
+				int old = region[next];
+				flood(next, biggest);
+				spareLabel(old);
+			}
+		}
+	}
+
+	/**
+	 * Updates the regions for a cell becoming filled, splitting its region if it cut it in pieces
+	 * @param cell the # of the cell
+	 */
+	private void occupy(int cell) {
+		free[cell] = false;
+		int label = region[cell];
+		region[cell] = NO_REGION;
+		if (--regionSize[label] == 0) {
+			spareLabel(label);
+			return;
+		}
+
+		// a split is only possible if the free cells around it aren't connected right around it
+		if (!isConnectedAround(cell)) splitAround(cell, label);
+	}
+
+	/**
+	 * Checks if the free neighbors of a cell are connected by the ring of 8 cells around it
+	 * @param cell the # of the cell
+	 * @return whether the free neighbors (up, right, down, left) are all in one run of free ring cells
+	 */
+	private boolean isConnectedAround(int cell) {
+		int row = cells.getRow(cell);
+		int col = cells.getCol(cell);
+		int start = -1;
+		for (int i = 0; i < RING.length; ++i) {
+			int r = row + RING[i][0];
+			int c = col + RING[i][1];
+			ring[i] = cells.isValid(r, c) && free[cells.index(r, c)];
+			if (!ring[i]) start = i;
+		}
+		// the whole ring is free
+		if (start < 0) return true;
+
+		// go round the ring from a filled cell, counting runs which have a neighbor in them
+		int runs = 0;
+		boolean inRun = false;
+		boolean counted = false;
+		for (int step = 1; step <= RING.length; ++step) {
+			int i = (start + step) % RING.length;
+			if (!ring[i]) {
+				inRun = false;
+				continue;
+			}
+			if (!inRun) {
+				inRun = true;
+				counted = false;
+			}
+			// even positions are the neighbors, odd are diagonals
+			if (i % 2 == 0 && !counted) {
+				counted = true;
+				if (++runs > 1) return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Floods out from each free neighbor of a cell at the same time, to find which pieces
+	 * its region was cut into. Each piece which runs out of cells before the others gets a new
+	 * label, so only the smaller pieces are flooded all the way.
+	 * @param cell the # of the cell which was filled
+	 * @param label the label of the region it was in
+	 */
+	private void splitAround(int cell, int label) {
+		++split;
+		int reachedCount = 0;
+		// each piece floods from a neighbor, with its own queue linked through link
+		int[] head = new int[4];
+		int[] tail = new int[4];
+		int[] parent = new int[4];
+		int pieces = 0;
+		int count = cells.neighborsOf(cell, around);
+		for (int n = 0; n < count; ++n) {
+			int next = around[n];
+			if (!free[next]) continue;
+			reached[next] = split;
+			pieceOf[next] = (byte) pieces;
+			link[next] = -1;
+			head[pieces] = next;
+			tail[pieces] = next;
+			parent[pieces] = pieces;
+			queue[reachedCount++] = next;
+			++pieces;
+		}
+
+		// take turns flooding a cell from each piece, until at most one is still going
+		while (countGoing(head, parent, pieces) > 1) {
+			for (int piece = 0; piece < pieces; ++piece) {
+				int from = head[piece];
+				if (from < 0) continue;
+				head[piece] = link[from];
+				int fromCount = cells.neighborsOf(from, aroundInner);
+				for (int n = 0; n < fromCount; ++n) {
+					int next = aroundInner[n];
+					if (!free[next]) continue;
+					if (reached[next] == split) {
+						// two pieces meeting are really one
+						int one = root(parent, piece);
+						int two = root(parent, pieceOf[next]);
+						if (one != two) parent[one] = two;
+						continue;
+					}
+					reached[next] = split;
+					pieceOf[next] = (byte) piece;
+					link[next] = -1;
+					if (head[piece] < 0) head[piece] = next;
+					else link[tail[piece]] = next;
+					tail[piece] = next;
+					queue[reachedCount++] = next;
+				}
+			}
+		}
+
+		// the piece still going (or if none are, the first) keeps the old label
+		int keep = root(parent, 0);
+		for (int piece = 0; piece < pieces; ++piece) if (head[piece] >= 0) keep = root(parent, piece);
+
+		// every other piece is finished, so gets a new label
+		int[] labels = {NO_REGION, NO_REGION, NO_REGION, NO_REGION};
+		for (int i = 0; i < reachedCount; ++i) {
+			int next = queue[i];
+			int piece = root(parent, pieceOf[next]);
+			if (piece == keep) continue;
+			if (labels[piece] == NO_REGION) labels[piece] = newLabel();
+			region[next] = labels[piece];
+			++regionSize[labels[piece]];
+			--regionSize[label];
+		}
+	}
+
+	/**
+	 * Counts the pieces which are still flooding
+	 * @param head the first cell in each piece's queue, or -1 if it is empty
+	 * @param parent the piece each piece has been found to be part of
+	 * @param pieces the # of pieces
+	 * @return the # of distinct pieces with cells left to flood from
+	 */
+	private static int countGoing(int[] head, int[] parent, int pieces) {
+		int going = 0;
+		int seen = 0;
+		for (int piece = 0; piece < pieces; ++piece) {
+			if (head[piece] < 0) continue;
+			int root = root(parent, piece);
+			if ((seen & (1 << root)) == 0) {
+				seen |= 1 << root;
+				++going;
+			}
+		}
+		return going;
+	}
+
+	/**
+	 * Finds which piece a piece is really part of
+	 * @param parent the piece each piece has been found to be part of
+	 * @param piece the piece
+	 * @return the piece at the root of its tree
+	 */
+	private static int root(int[] parent, int piece) {
+		while (parent[piece] != piece) piece = parent[piece];
+		return piece;
+	}
+
+	/**
+	 * Labels every free cell connected to a cell, which doesn't have the label yet
+	 * @param start the # of the cell to flood from
+	 * @param label the label to give
+	 */
+	private void flood(int start, int label) {
+		int old = region[start];
+		region[start] = label;
+		++regionSize[label];
+		if (old != NO_REGION) --regionSize[old];
+		int size = 0;
+		queue[size++] = start;
+		for (int i = 0; i < size; ++i) {
+			int count = cells.neighborsOf(queue[i], aroundInner);
+			for (int n = 0; n < count; ++n) {
+				int next = aroundInner[n];
+				if (!free[next] || region[next] == label) continue;
+				if (region[next] != NO_REGION) --regionSize[region[next]];
+				region[next] = label;
+				++regionSize[label];
+				queue[size++] = next;
+			}
+		}
+	}
+
+	/**
+	 * Takes a label for a new region
+	 * @return the label
+	 */
+	private int newLabel() {
+		++regions;
+		int label = spareLabels[--spareCount];
+		regionSize[label] = 0;
+		return label;
+	}
+
+	/**
+	 * Gives back the label of a region which no longer exists
+	 * @param label the label
+	 */
+	private void spareLabel(int label) {
+		--regions;
+		spareLabels[spareCount++] = label;
+	}
+
+	/**
+	 * Adds a cell to the list of changed cells
+	 * @param cell the # of the cell
+	 */
+	private void addChanged(int cell) {
+		if (changedCount == changed.length) changed = Arrays.copyOf(changed, changedCount * 2);
+		changed[changedCount++] = cell;
+	}
+
+	/**
+	 * Checks if a cell is free in the Grid right now
+	 * @param cell the # of the cell
+	 * @return whether it is a PATH cell with no Path through it
+	 */
+	private boolean isFreeNow(int cell) {
+		return cells.getKind(cell) == Cells.PATH && grid.getOwner(cell) == Grid.NO_PATH;
+	}
+
+	/**
+	 * Checks if a cell is next to a region
+	 * @param cell the # of the cell
+	 * @param label the label of the region
+	 * @return whether any neighbor of the cell is in the region
+	 */
+	private boolean touchesRegion(int cell, int label) {
+		int count = cells.neighborsOf(cell, aroundInner);
+		for (int n = 0; n < count; ++n)
+			if (free[aroundInner[n]] && region[aroundInner[n]] == label) return true;
+		return false;
+	}
+
+	/**
+	 * Checks if two cells share a side
+	 * @param one the # of one cell
+	 * @param two the # of the other cell
+	 * @return whether they are next to each other
+	 */
+	private boolean areNeighbors(int one, int two) {
+		int rows = Math.abs(cells.getRow(one) - cells.getRow(two));
+		int columns = Math.abs(cells.getCol(one) - cells.getCol(two));
+		return rows + columns == 1;
+	}
+
+	/**
+	 * Describes where a cell is, for messages
+	 * @param cell the # of the cell
+	 * @return the cell's (row, column)
+	 */
+	private String location(int cell) {
+		return "(" + cells.getRow(cell) + ", " + cells.getCol(cell) + ")";
+	}
+}
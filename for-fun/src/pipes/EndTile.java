@@ -22,22 +22,18 @@ public class EndTile extends Tile {
 	 * @param color the required color of this EndTile's pipe
 	 */
 	public EndTile(int row, int col, int side, Color color) {
-		super(row, col, sidesArr(side), color);
+		super(row, col, sidesMask(side), color);
 		this.side = side;
 	}
 
 	/**
-	 * Sets up the sides array, with one exiting side
+	 * Sets up the sides mask, with one exiting side
 	 * @param side the side with an exiting pipe
-	 * @return the completed side array
+	 * @return the completed sides mask
 	 */
-	private static boolean[] sidesArr(int side) {
-		// initialize all sides as false
-		boolean[] sides = new boolean[4];
-		// set the exiting side to true
-		sides[side] = true;
-		
-		return sides;
+	private static int sidesMask(int side) {
+		// only the exiting side has a pipe
+		return 1 << side;
 	}
 	
 	/**
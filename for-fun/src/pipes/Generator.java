@@ -0,0 +1,302 @@
+package pipes;
+
+// for writing generated levels to a file
+import java.io.File;
+import java.io.IOException;
+
+// for seedable random numbers that can be split between threads
+import java.util.SplittableRandom;
+// for generating many Levels at once
+import java.util.stream.IntStream;
+
+/**
+ * Generates random Levels of Pipes which are always solvable, by
+ * <ul>
+ * 	<li>planting a tree of 2 connected cells for each color</li>
+ * 	<li>growing the trees by connecting a random free cell to one of them, chosen from every
+ * 	edge between a tree and a free cell, until every cell is in a tree</li>
+ * 	<li>and turning each cell into the Tile with the pipes its tree connects it by: an end-pipe
+ * 	for 1, a Bend or Straight for 2 (whichever shape they make), a Fork for 3, and All for 4</li>
+ * </ul>
+ * The trees are themselves a solution, so no solver needs to run on what is generated. The
+ * Tiles are turned randomly (and so scrambled) when a Grid is made from the Level.
+ * <br>
+ * The same seed always generates the same Levels, even when generating in parallel.
+ * @author faith
+ */
+public class Generator {
+	/**
+	 * the # of rows in generated Levels
+	 */
+	private final int rows;
+	/**
+	 * the # of columns in generated Levels
+	 */
+	private final int cols;
+	/**
+	 * the # of colors (trees) in generated Levels
+	 */
+	private final int colors;
+
+	/**
+	 * the # of random cells to try when planting a tree, before looking at every cell
+	 */
+	private static final int PLANT_TRIES = 64;
+	/**
+	 * a missing neighbor, or a cell in no tree
+	 */
+	private static final int NONE = -1;
+
+	/**
+	 * Initializes a Generator
+	 * @param rows the # of rows in generated Levels
+	 * @param cols the # of columns in generated Levels
+	 * @param colors the # of colors in generated Levels
+	 */
+	public Generator(int rows, int cols, int colors) {
+		// check for argument validity
+		if (rows <= 0 || cols <= 0 || rows * cols < 2)
+			throw new IllegalArgumentException("Invalid grid dimensions: " + rows + "x" + cols);
+		// each tree needs 2 cells, to have pipes to connect
+		if (colors <= 0 || colors > rows * cols / 2)
+			throw new IllegalArgumentException("Can't generate " + colors + " colors");
+		this.rows = rows;
+		this.cols = cols;
+		this.colors = colors;
+	}
+
+	/**
+	 * Generates many Levels, in parallel
+	 * @param count the # of Levels to generate
+	 * @param seed the seed to generate from
+	 * @return the Levels, always the same for the same seed
+	 */
+	public Level[] generate(int count, long seed) {
+		// give each Level its own seed up front, so the order they are generated in doesn't matter
+		SplittableRandom random = new SplittableRandom(seed);
+		long[] seeds = new long[count];
+		for (int i = 0; i < count; ++i) seeds[i] = random.nextLong();
+
+		return IntStream.range(0, count).parallel()
+				.mapToObj(i -> generate(seeds[i]))
+				.toArray(Level[]::new);
+	}
+
+	/**
+	 * Generates a Level
+	 * @param seed the seed to generate from
+	 * @return the Level, always the same for the same seed
+	 */
+	public Level generate(long seed) {
+		Forest forest = new Forest(new SplittableRandom(seed));
+		forest.plant();
+		forest.grow();
+		return forest.toLevel();
+	}
+
+	/**
+	 * A grid of cells split into trees of connected pipes, as it is being generated
+	 * @author faith
+	 */
+	private class Forest {
+		/**
+		 * where to get random numbers from
+		 */
+		private final SplittableRandom random;
+		/**
+		 * the sides each cell's pipes connect it by (as in Tile.getSides)
+		 */
+		private final byte[] sides;
+		/**
+		 * the color of the tree each cell is in, or NONE
+		 */
+		private final int[] tree;
+		/**
+		 * the edges out of the trees (as cell * 4 + side), some of which now lead into trees too
+		 */
+		private final int[] frontier;
+		/**
+		 * the # of edges in frontier
+		 */
+		private int frontierSize;
+
+		/**
+		 * Initializes a Forest with no trees
+		 * @param random where to get random numbers from
+		 */
+		private Forest(SplittableRandom random) {
+			this.random = random;
+			int cells = rows * cols;
+			sides = new byte[cells];
+			tree = new int[cells];
+			for (int cell = 0; cell < cells; ++cell) tree[cell] = NONE;
+			// each cell adds its 4 edges once, when it joins a tree
+			frontier = new int[cells * 4];
+			frontierSize = 0;
+		}
+
+		/**
+		 * Plants a tree of 2 connected cells for each color, at random
+		 * @throws IllegalStateException if there is no room left for a tree
+		 */
+		private void plant() {
+			for (int color = 0; color < colors; ++color) {
+				// try random cells, then every cell (from a random one), for a free cell with a free neighbor
+				int cell = NONE;
+				for (int i = 0; i < PLANT_TRIES && cell == NONE; ++i) cell = plantable(random.nextInt(tree.length));
+				for (int i = 0, start = random.nextInt(tree.length); i < tree.length && cell == NONE; ++i)
+					cell = plantable((start + i) % tree.length);
+				if (cell == NONE) throw new IllegalStateException("No room for " + colors + " colors");
+
+				// connect it to a random free neighbor
+				tree[cell] = color;
+				addEdges(cell);
+				int side;
+				do side = random.nextInt(Tile.directions.length);
+				while (free(cell, side) == NONE);
+				connect(cell, side);
+			}
+		}
+
+		/**
+		 * Checks if a cell could be planted in
+		 * @param cell the # of the cell
+		 * @return the cell, if it and some neighbor are free, otherwise NONE
+		 */
+		private int plantable(int cell) {
+			if (tree[cell] != NONE) return NONE;
+			for (int side : Tile.directions) if (free(cell, side) != NONE) return cell;
+			return NONE;
+		}
+
+		/**
+		 * Grows the trees through random edges, until every cell is in one
+		 */
+		private void grow() {
+			while (frontierSize > 0) {
+				// take a random edge out of the frontier
+				int index = random.nextInt(frontierSize);
+				int edge = frontier[index];
+				frontier[index] = frontier[--frontierSize];
+				// connect through it, if it still leads to a free cell
+				if (free(edge / 4, edge % 4) != NONE) connect(edge / 4, edge % 4);
+			}
+		}
+
+		/**
+		 * Finds the free cell on a side of a cell
+		 * @param cell the # of the cell
+		 * @param side the side to look on
+		 * @return the # of the cell on that side, if there is one and it's in no tree, otherwise NONE
+		 */
+		private int free(int cell, int side) {
+			int next = neighbor(cell, side);
+			return next != NONE && tree[next] == NONE ? next : NONE;
+		}
+
+		/**
+		 * Connects a cell in a tree to the free cell on one of its sides, adding it to the tree
+		 * @param cell the # of the cell in a tree
+		 * @param side the side the free cell is on
+		 */
+		private void connect(int cell, int side) {
+			int next = neighbor(cell, side);
+			sides[cell] |= 1 << side;
+			sides[next] |= 1 << (side + 2) % 4;
+			tree[next] = tree[cell];
+			addEdges(next);
+		}
+
+		/**
+		 * Adds the edges out of a cell which just joined a tree to the frontier
+		 * @param cell the # of the cell
+		 */
+		private void addEdges(int cell) {
+			for (int side : Tile.directions)
+				if (free(cell, side) != NONE) frontier[frontierSize++] = cell * 4 + side;
+		}
+
+		/**
+		 * Turns the trees into a Level
+		 * @return the Level, with an end-pipe set for each tree
+		 */
+		private Level toLevel() {
+			char[][] grid = new char[rows][cols];
+			// count each tree's end-pipes (cells with one pipe)
+			int[] counts = new int[colors];
+			for (int cell = 0; cell < sides.length; ++cell) {
+				grid[cell / cols][cell % cols] = typeOf(sides[cell]);
+				if (Integer.bitCount(sides[cell]) == 1) ++counts[tree[cell]];
+			}
+
+			// add each end-pipe's coordinates and exit-side to its tree's set
+			int[][] ends = new int[colors][];
+			for (int color = 0; color < colors; ++color) ends[color] = new int[counts[color] * 3];
+			int[] added = new int[colors];
+			for (int cell = 0; cell < sides.length; ++cell) if (Integer.bitCount(sides[cell]) == 1) {
+				int[] set = ends[tree[cell]];
+				int i = added[tree[cell]]++ * 3;
+				set[i] = cell / cols;
+				set[i + 1] = cell % cols;
+				set[i + 2] = Integer.numberOfTrailingZeros(sides[cell]);
+			}
+			return new Level(grid, ends);
+		}
+	}
+
+	/**
+	 * Gets the type of Tile with pipes out of some sides
+	 * @param sides the sides mask (as in Tile.getSides), with at least one side
+	 * @return the type-of-tile char (as in Level.getGrid)
+	 */
+	private static char typeOf(int sides) {
+		int count = Integer.bitCount(sides);
+		if (count == 1) return 'E';
+		// two sides are Straight if they're opposite, otherwise a Bend
+		if (count == 2) return sides == (1 << Tile.UP | 1 << Tile.DOWN)
+				|| sides == (1 << Tile.LEFT | 1 << Tile.RIGHT) ? 'S' : 'B';
+		return count == 3 ? 'F' : 'A';
+	}
+
+	/**
+	 * Finds the cell on a side of a cell
+	 * @param cell the # of the cell
+	 * @param side the side to look on
+	 * @return the # of the cell on that side, or NONE if it's off the grid
+	 */
+	private int neighbor(int cell, int side) {
+		int row = cell / cols;
+		int col = cell % cols;
+		if (side == Tile.UP) return row > 0 ? cell - cols : NONE;
+		if (side == Tile.DOWN) return row < rows - 1 ? cell + cols : NONE;
+		if (side == Tile.LEFT) return col > 0 ? cell - 1 : NONE;
+		return col < cols - 1 ? cell + 1 : NONE;
+	}
+
+	/**
+	 * Generates a file of Levels
+	 * @param args the # of rows, # of columns, # of colors, # of Levels, seed, and
+	 * optionally the file to write (otherwise they are printed)
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 5) {
+			System.out.println("Usage: Generator rows cols colors count seed [file]");
+			return;
+		}
+
+		Generator generator = new Generator(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+				Integer.parseInt(args[2]));
+
+		long start = System.nanoTime();
+		Level[] levels = generator.generate(Integer.parseInt(args[3]), Long.parseLong(args[4]));
+		long millis = (System.nanoTime() - start) / 1_000_000;
+
+		// write to the file if there is one, otherwise print
+		if (args.length > 5) {
+			Level.writeLevels(levels, new File(args[5]));
+			System.out.println("Generated " + levels.length + " levels in " + millis + "ms");
+		}
+		else for (Level level : levels) System.out.println(level);
+	}
+}
@@ -4,12 +4,25 @@ package pipes;
 import java.awt.Color;
 import java.awt.Graphics;
 
-// for arrays that can change size
-import java.util.ArrayList;
+// for sorting and clearing arrays
+import java.util.Arrays;
 
 /**
  * A grid of Tiles for playing Pipes, 
  * which can rotate tiles, recalculate water flow, and check for completeness
+ * <br>
+ * Water flow is only recalculated where a rotation could have changed it:
+ * <ul>
+ * 	<li>rotating a Tile drains the pipes connected to it, both before and after it turns</li>
+ * 	<li>and the end-pipes those drained pipes touch are queued to flow again</li>
+ * 	<li>so the next draw (or completeness check) only refills the drained pipes, and does
+ * 	nothing at all if no Tile was rotated</li>
+ * </ul>
+ * so a rotation costs about as much as the pipe networks it touches, however big the Grid is.
+ * <br>
+ * The Grid also keeps count of everything keeping it from being complete (pipes leading
+ * nowhere, Tiles without water, and end-pipes fed the wrong color), updating the count as
+ * Tiles rotate and water flows, so checking for completeness is just checking for 0.
  * @author faith
  */
 public class Grid {
@@ -21,6 +34,60 @@ public class Grid {
 	 * all end-pipes in this Grid
 	 */
 	private EndTile[] ends;
+	/**
+	 * the Tiles in row-major order, so each cell has a # (row * columns + column)
+	 */
+	private final Tile[] cells;
+	/**
+	 * the # of the cell on each side of each cell (at cell * 4 + side), or NONE off the edge
+	 */
+	private final int[] neighbors;
+	/**
+	 * the mask of sides with a pipe (see Tile.getSides) in each cell, packed two cells to a byte
+	 * (the even cell in the low 4 bits), so following pipes doesn't have to visit the Tiles
+	 */
+	private final byte[] sides;
+	/**
+	 * the index in ends of the EndTile in each cell, or NONE
+	 */
+	private final int[] endAt;
+	/**
+	 * the cells waiting to be visited, while draining or spreading water
+	 */
+	private final int[] queue;
+	/**
+	 * the last drain each cell was visited in, so each is only visited once per drain
+	 */
+	private final int[] seen;
+	/**
+	 * the # of the current drain
+	 */
+	private int drains;
+	/**
+	 * the indexes in ends of the end-pipes whose water has to flow again
+	 */
+	private final int[] pending;
+	/**
+	 * the # of end-pipes in pending
+	 */
+	private int pendingCount;
+	/**
+	 * whether each end-pipe (by index in ends) is in pending
+	 */
+	private final boolean[] isPending;
+	/**
+	 * the # of pipes out of each cell which don't connect to a pipe in the next cell
+	 */
+	private final byte[] unmatched;
+	/**
+	 * the # of unmatched pipes, Tiles without water, and end-pipes whose next Tile has the wrong color
+	 */
+	private int problems;
+	
+	/**
+	 * the neighbor of a cell on a side which is off the edge of the Grid
+	 */
+	private static final int NONE = -1;
 	
 	/**
 	 * Initializes a Grid given a Level
@@ -39,10 +106,8 @@ public class Grid {
 		// initialize the Tile matrix
 		tiles = new Tile[grid.length][grid[0].length];
 		
-		// initialize the list of used colors to Tile background and pipe colors
-		ArrayList<Color> colors = new ArrayList<Color>();
-		colors.add(Tile.BACKGROUND);
-		colors.add(Tile.PIPE);
+		// get a well-separated color for each color-set (none are close to the background or pipes)
+		Color[] colors = lines.Palette.colors(ends.length);
 		
 		// loop over all cells of Tiles
 		for (int row = 0; row < tiles.length; ++row) 
@@ -64,10 +129,9 @@ public class Grid {
 		// initialize counter for # of end-pipes
 		int numEnds = 0;
 		// loop over all color-sets in ends
-		for (int[] set : ends) {
-			// get a random contrasting color, and add it to the list of colors
-			Color cur = lines.Grid.randomContrastColor(colors);
-			colors.add(cur);
+		for (int color = 0; color < ends.length; ++color) {
+			int[] set = ends[color];
+			Color cur = colors[color];
 			// loop each end-pipe's information
 			for (int i = 0; i < set.length; i += 3) {
 				// initialize the EndTile, and increment end-pipe counter
@@ -84,6 +148,48 @@ public class Grid {
 		for (int[] set : ends) for (int i = 0; i < set.length; i += 3)
 			// add this EndTile to the array of EndTiles
 			this.ends[index++] = (EndTile) tiles[set[i]][set[i + 1]];
+		
+		// number the cells, and find each one's neighbors once so water never has to check the edges
+		int rows = tiles.length;
+		int cols = tiles[0].length;
+		cells = new Tile[rows * cols];
+		neighbors = new int[cells.length * Tile.directions.length];
+		sides = new byte[(cells.length + 1) / 2];
+		for (int row = 0; row < rows; ++row) for (int col = 0; col < cols; ++col) {
+			int cell = row * cols + col;
+			cells[cell] = tiles[row][col];
+			setSides(cell, cells[cell].getSides());
+			neighbors[cell * 4 + Tile.UP] = row > 0 ? cell - cols : NONE;
+			neighbors[cell * 4 + Tile.DOWN] = row < rows - 1 ? cell + cols : NONE;
+			neighbors[cell * 4 + Tile.LEFT] = col > 0 ? cell - 1 : NONE;
+			neighbors[cell * 4 + Tile.RIGHT] = col < cols - 1 ? cell + 1 : NONE;
+		}
+		
+		// note which cells hold end-pipes
+		endAt = new int[cells.length];
+		Arrays.fill(endAt, NONE);
+		for (int end = 0; end < this.ends.length; ++end) endAt[cellOf(this.ends[end])] = end;
+		
+		queue = new int[cells.length];
+		seen = new int[cells.length];
+		drains = 0;
+		pending = new int[this.ends.length];
+		pendingCount = 0;
+		isPending = new boolean[this.ends.length];
+		
+		// count the unmatched pipes
+		unmatched = new byte[cells.length];
+		problems = 0;
+		for (int cell = 0; cell < cells.length; ++cell) recount(cell);
+		// no water has flowed yet, so every Tile but the EndTiles is dry
+		problems += cells.length - this.ends.length;
+		// and each EndTile's next Tile has the wrong color (unless it's an EndTile with the same color)
+		for (EndTile end : this.ends) {
+			int next = neighbors[cellOf(end) * 4 + end.getSide()];
+			if (next == NONE || !end.getColor().equals(cells[next].getColor())) ++problems;
+		}
+		// every end-pipe has to flow
+		refillPipes();
 	}
 
 	/**
@@ -92,14 +198,41 @@ public class Grid {
 	 */
 	public int getCols() {return tiles[0].length;}
 	
+	/**
+	 * Get the rows in the Grid
+	 * @return the number of rows in tiles
+	 */
+	public int getRows() {return tiles.length;}
+	
+	/**
+	 * Gets the sides with a pipe of the Tile in a location
+	 * @param row the row of the Tile
+	 * @param col the column of the Tile
+	 * @return the sides mask (see Tile.getSides)
+	 */
+	int sidesAt(int row, int col) {return getSides(row * getCols() + col);}
+	
 	/**
 	 * Rotate the Tile in the given position
 	 * @param row the row of the Tile to rotate
 	 * @param col the column of the Tile to rotate
 	 */
 	public void rotateTile(int row, int col) {
-		// only rotate if this tile is valid
-		if (isValidTile(row, col)) tiles[row][col].rotate();
+		// only rotate if this tile is valid (and not an end-pipe, which can't rotate)
+		if (!isValidTile(row, col)) return;
+		int cell = row * getCols() + col;
+		if (endAt[cell] != NONE) return;
+		
+		// drain the pipes this Tile leaves, and the ones it joins once rotated
+		drain(cell);
+		tiles[row][col].rotate();
+		setSides(cell, tiles[row][col].getSides());
+		drain(cell);
+		
+		// only this Tile's pipes, and the ones facing it, can have been matched or unmatched
+		recount(cell);
+		for (int dir : Tile.directions)
+			if (neighbors[cell * 4 + dir] != NONE) recount(neighbors[cell * 4 + dir]);
 	}
 	
 	/**
@@ -107,34 +240,10 @@ public class Grid {
 	 * @return whether any moves are required to complete this Grid
 	 */
 	public boolean isComplete() {
-		// loop over each EndTile
-		for (EndTile end : ends)
-			// if the Tile right out of this one has the wrong color, not complete
-			if (!end.getColor().equals(nextTile(end, end.getSide()).getColor()))
-				return false;
-		
-		// loop over all Tiles
-		for (Tile[] row : tiles) for (Tile tile : row) {
-			// if this Tile has no water, not complete
-			if (tile.getColor() == null) return false;
-			
-			// loop over all directions to go out
-			for (int dir : Tile.directions) {
-				// if this side has a pipe
-				if (tile.hasSide(dir)) {
-					try {
-						// try to grab the Tile next to it
-						Tile next = nextTile(tile, dir);
-						// if this Tile isn't connected, not complete
-						if (!tile.isConnected(next)) return false;
-					}
-					// if there was no Tile next to it, not complete
-					catch (IllegalArgumentException e) {return false;}
-				}
-			}
-		}
-		
-		return true;
+		// make sure the water is up to date
+		reflow();
+		// if nothing is wrong, complete
+		return problems == 0;
 	}
 	
 	/**
@@ -144,26 +253,99 @@ public class Grid {
 	 * @return the Tile in that direction
 	 */
 	public Tile nextTile(Tile tile, int direction) {
-		try {
-			// if UP, try to go up (subtract a row)
-			if (direction == Tile.UP)
-				return tiles[tile.getRow() - 1][tile.getCol()];
-			// similar for DOWN
-			else if (direction == Tile.DOWN)
-				return tiles[tile.getRow() + 1][tile.getCol()];
-			// similar for LEFT
-			else if (direction == Tile.LEFT)
-				return tiles[tile.getRow()][tile.getCol() - 1];
-			// similar for RIGHT
-			else if (direction == Tile.RIGHT)
-				return tiles[tile.getRow()][tile.getCol() + 1];
-		}
-		// if any of those indexes were invalid, then the direction went off the grid
-		catch (IndexOutOfBoundsException e) 
-			{throw new IllegalArgumentException("No Tile in that direction");}
 		// if no direction matched, then the direction was invalid
-		throw new IllegalArgumentException("Invalid direction");
+		if (direction < 0 || direction >= Tile.directions.length)
+			throw new IllegalArgumentException("Invalid direction");
+		// look the neighbor up, which is NONE if the direction goes off the grid
+		int next = neighbors[cellOf(tile) * 4 + direction];
+		if (next == NONE) throw new IllegalArgumentException("No Tile in that direction");
+		return cells[next];
 	}
+	
+	/**
+	 * Gets the # of a Tile's cell
+	 * @param tile a Tile in this Grid
+	 * @return the index of the Tile in cells
+	 */
+	private int cellOf(Tile tile) {return tile.getRow() * tiles[0].length + tile.getCol();}
+	
+	/**
+	 * Counts the pipes out of a cell which don't connect to a pipe in the next cell
+	 * @param cell the # of the cell
+	 */
+	private void recount(int cell) {
+		int mask = getSides(cell);
+		byte count = 0;
+		// a pipe which doesn't lead into another is unmatched
+		for (int dir : Tile.directions)
+			if ((mask & 1 << dir) != 0 && follow(cell, dir) == NONE) ++count;
+		problems += count - unmatched[cell];
+		unmatched[cell] = count;
+	}
+	
+	/**
+	 * Sets the color of the water in a cell, keeping count of problems
+	 * @param cell the # of the cell
+	 * @param color the new color, or null if the Tile is dry
+	 */
+	private void fill(int cell, Color color) {
+		// EndTiles keep their color
+		if (endAt[cell] != NONE) return;
+		Color old = cells[cell].getColor();
+		// a Tile being drained or filled is a problem more or less
+		if (old == null) --problems;
+		if (color == null) ++problems;
+		
+		// loop over the EndTiles facing this cell
+		for (int dir : Tile.directions) {
+			int next = neighbors[cell * 4 + dir];
+			if (next == NONE || endAt[next] == NONE) continue;
+			EndTile end = ends[endAt[next]];
+			if (end.getSide() != opposite(dir)) continue;
+			// it is a problem if this cell's water doesn't match it
+			if (!end.getColor().equals(old)) --problems;
+			if (!end.getColor().equals(color)) ++problems;
+		}
+		cells[cell].setColor(color);
+	}
+	
+	/**
+	 * Gets the mask of sides with a pipe in a cell
+	 * @param cell the # of the cell
+	 * @return the cell's 4 bits of sides
+	 */
+	private int getSides(int cell) {return sides[cell >> 1] >> (cell & 1) * 4 & Tile.ALL;}
+	
+	/**
+	 * Sets the mask of sides with a pipe in a cell
+	 * @param cell the # of the cell
+	 * @param mask the new mask of sides
+	 */
+	private void setSides(int cell, int mask) {
+		int shift = (cell & 1) * 4;
+		sides[cell >> 1] = (byte) (sides[cell >> 1] & ~(Tile.ALL << shift) | mask << shift);
+	}
+	
+	/**
+	 * Follows the pipe out of a side of a cell
+	 * @param cell the # of the cell
+	 * @param side the side the pipe exits
+	 * @return the # of the cell it leads into, or NONE if there's no pipe there or it doesn't meet one
+	 */
+	private int follow(int cell, int side) {
+		int next = neighbors[cell * 4 + side];
+		// the pipes on both sides of the edge have to be there
+		if (next == NONE || (getSides(cell) & 1 << side) == 0 || (getSides(next) & 1 << opposite(side)) == 0)
+			return NONE;
+		return next;
+	}
+	
+	/**
+	 * Gets the side opposite a side
+	 * @param side the int value of a side
+	 * @return the int value of the side facing it, across the edge between two Tiles
+	 */
+	private static int opposite(int side) {return (side + 2) % 4;}
 
 	/**
 	 * Draws the Grid
@@ -171,40 +353,102 @@ public class Grid {
 	 */
 	public void draw(Graphics window) {
 		// recalculate water flow
-		refillPipes();
+		reflow();
 		// draw each Tile
-		for (Tile[] row : tiles) for (Tile tile : row) tile.draw(window);
+		for (Tile tile : cells) tile.draw(window);
 	}
 	
 	/**
-	 * Recalculates water flow through all Tiles
+	 * Drains all Tiles, so water flow through them is recalculated on the next reflow
 	 */
 	private void refillPipes() {
-		// erase all colors 
-		for (Tile[] row : tiles) for (Tile tile : row) tile.setColor(null);
-		// flow out from each EndTile
-		for (EndTile end : ends) colorAllConnected(end);
+		// erase all colors (EndTiles keep theirs)
+		for (int cell = 0; cell < cells.length; ++cell) fill(cell, null);
+		// every EndTile has to flow again
+		for (int end = 0; end < ends.length; ++end) pend(end);
 	}
 	
 	/**
-	 * Colors all connected, uncolored pipes for this Tile
+	 * Drains the water from every pipe connected to a cell, so it is refilled on the next reflow
+	 * @param start the # of the cell to drain from
+	 */
+	private void drain(int start) {
+		// start a new drain, so no cell has been seen in it yet
+		if (++drains == 0) {
+			Arrays.fill(seen, 0);
+			drains = 1;
+		}
+		
+		// the queue starts with just this cell
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = start;
+		seen[start] = drains;
+		while (head < tail) {
+			int cell = queue[head++];
+			// drain this Tile, or if it is an EndTile (which keeps its color), have it flow again
+			fill(cell, null);
+			if (endAt[cell] != NONE) pend(endAt[cell]);
+			
+			// queue each connected Tile not yet drained
+			for (int dir : Tile.directions) {
+				int next = follow(cell, dir);
+				if (next != NONE && seen[next] != drains) {
+					seen[next] = drains;
+					queue[tail++] = next;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Queues an EndTile to have its water flow again, if it isn't already
+	 * @param end the index in ends of the EndTile
+	 */
+	private void pend(int end) {
+		if (isPending[end]) return;
+		isPending[end] = true;
+		pending[pendingCount++] = end;
+	}
+	
+	/**
+	 * Refills the drained Tiles, by letting water flow from each queued EndTile
+	 */
+	private void reflow() {
+		// if nothing was rotated, the water is already right
+		if (pendingCount == 0) return;
+		// when end-pipes of different colors are connected, the first in ends wins (as in a full refill)
+		Arrays.sort(pending, 0, pendingCount);
+		for (int i = 0; i < pendingCount; ++i) {
+			isPending[pending[i]] = false;
+			colorAllConnected(ends[pending[i]]);
+		}
+		pendingCount = 0;
+	}
+	
+	/**
+	 * Colors all connected, uncolored pipes for this Tile, spreading water a cell at a time
+	 * through a queue (rather than recursing), so a big Grid can't overflow the stack
 	 * @param tile the Tile to color from
 	 */
 	private void colorAllConnected(Tile tile) {
-		// loop over all possible directions
-		for (int dir : Tile.directions) {
-			try {
-				// try to grab the Tile in this direction
-				Tile next = nextTile(tile, dir);
-				// if this Tile is connected and has not water,
-				if (tile.isConnected(next) && next.getColor() == null) {
-					// have water flow into it, and color all connected to it
-					next.setColor(tile.getColor());
-					colorAllConnected(next);
+		// the queue starts with just this Tile
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = cellOf(tile);
+		while (head < tail) {
+			int cell = queue[head++];
+			Tile from = cells[cell];
+			// loop over all sides
+			for (int dir : Tile.directions) {
+				int next = follow(cell, dir);
+				// if there is a Tile connected this way, without water,
+				if (next != NONE && cells[next].getColor() == null) {
+					// have water flow into it, and queue it to flow on from there
+					fill(next, from.getColor());
+					queue[tail++] = next;
 				}
 			}
-			// if there was no Tile in that direction, move on
-			catch (IllegalArgumentException e) {}
 		}
 	}
 	
@@ -3,6 +3,9 @@ package pipes;
 // for reading from levels.dat
 import java.util.Scanner;
 import java.io.File;
+import java.io.IOException;
+// for writing levels
+import java.io.PrintWriter;
 
 /**
  * Information about a level of Pipes
@@ -48,10 +51,25 @@ public class Level {
 		// declare return variable
 		Level[] levels = null;
 		try {
-			// point a Scanner at levels.dat
-			Scanner reader = new Scanner(new File("src/pipes/levels.dat"));
+			levels = readLevels(new File("src/pipes/levels.dat"));
+		}
+		// if something happens, print it out
+		catch (Exception e) {e.printStackTrace();}
+		
+		return levels;
+	}
+	
+	/**
+	 * Reads information about Levels from a file, in the format of levels.dat
+	 * @param file the file to read
+	 * @return the completed array of Levels
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Level[] readLevels(File file) throws IOException {
+		// point a Scanner at the file
+		try (Scanner reader = new Scanner(file)) {
 			// read the number of levels, initializing the array size
-			levels = new Level[reader.nextInt()];
+			Level[] levels = new Level[reader.nextInt()];
 			
 			// loop over each level to read
 			for (int level = 0; level < levels.length; ++level) {
@@ -87,12 +105,46 @@ public class Level {
 				levels[level] = new Level(grid, ends);
 			}
 			
-			// clean up
-			reader.close();
+			return levels;
+		}
+	}
+	
+	/**
+	 * Writes Levels to a file, in the format readLevels reads
+	 * @param levels the Levels to write
+	 * @param file the file to write to
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void writeLevels(Level[] levels, File file) throws IOException {
+		try (PrintWriter writer = new PrintWriter(file)) {
+			// write the number of levels
+			writer.println(levels.length);
+			// write each Level after a blank line
+			for (Level level : levels) {
+				writer.println();
+				writer.print(level);
+			}
+		}
+	}
+	
+	public String toString() {
+		// start with the grid size
+		StringBuilder ret = new StringBuilder();
+		ret.append(grid.length).append(' ').append(grid[0].length).append('\n');
+		// add each row of type-of-tile chars, separated by spaces
+		for (char[] row : grid) {
+			for (int col = 0; col < row.length; ++col) ret.append(col == 0 ? "" : " ").append(row[col]);
+			ret.append('\n');
 		}
-		// if something happens, print it out
-		catch (Exception e) {e.printStackTrace();}
 		
-		return levels;
+		// add the # of color-sets, then each set's # of end-pipes and their coordinates and exit-sides
+		ret.append(ends.length).append('\n');
+		for (int[] set : ends) {
+			ret.append(set.length / 3);
+			for (int i = 0; i < set.length; i += 3)
+				ret.append(' ').append(set[i]).append(' ').append(set[i + 1]).append(' ').append(Tile.sideToString(set[i + 2]));
+			ret.append('\n');
+		}
+		return ret.toString();
 	}
 }
\ No newline at end of file
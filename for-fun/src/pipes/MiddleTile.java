@@ -65,47 +65,29 @@ public class MiddleTile extends Tile {
 	}
 	
 	public void rotate() {
-		// assume all sides will not be there
-		boolean[] newSides = new boolean[4];
-		// loop over all sides
-		for (int side : directions)
-			// set this new side to true if a side counterclockwise is
-			newSides[side] = hasSide((side + 1) % 4);
-		
-		setSides(newSides);
+		// turn every pipe a quarter turn at once
+		setSides(rotated(getSides()));
 	}
 	
 	/**
-	 * Get an array of random consecutive sides
+	 * Get a mask of random consecutive sides
 	 * @param num the number of sides
-	 * @return the completed sides array
+	 * @return the completed sides mask
 	 */
-	public static boolean[] getConsecSides(int num) {
-		// assume all sides have no pipe
-		boolean[] sides = new boolean[4];
-		// start on a random side
-		int start = randomSide();
-		// loop for each side to add, set the next one to true
-		for (int i = start; i < start + num; ++i)
-			sides[i % 4] = true;
-		
-		return sides;
+	public static int getConsecSides(int num) {
+		// set num sides in a row from a random side, wrapping the ones past LEFT back around to UP
+		int sides = ((1 << num) - 1) << randomSide();
+		return (sides | sides >> 4) & ALL;
 	}
 	
 	/**
-	 * Get an array of two opposite sides
-	 * @return the completed sides array
+	 * Get a mask of two opposite sides
+	 * @return the completed sides mask
 	 */
-	public static boolean[] getOppSides() {
-		// assume all sides have no pipes
-		boolean[] sides = new boolean[4];
-		// get a random side
+	public static int getOppSides() {
+		// set a random side and the side opposite it
 		int start = randomSide();
-		// set random side and opposite random side to pipes
-		sides[start] = true;
-		sides[(start + 2) % 4] = true;
-		
-		return sides;
+		return 1 << start | 1 << (start + 2) % 4;
 	}
 	
 	public String toString() {
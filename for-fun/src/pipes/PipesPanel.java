@@ -4,6 +4,7 @@ package pipes;
 import java.awt.Graphics;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 // for mouse clicks
 import java.awt.event.MouseEvent;
@@ -39,6 +40,10 @@ public class PipesPanel extends JPanel {
 	 * whether the game is actively being played
 	 */
 	private boolean active;
+	/**
+	 * the Solver for the current Level, for hints (made when first needed)
+	 */
+	private Solver solver;
 	
 	/**
 	 * Set up a Pipes game
@@ -57,6 +62,7 @@ public class PipesPanel extends JPanel {
 		infoMessage = new JLabel("<html>Click on a pipe to rotate it<br>"
 				+ "End-pipes (only one entrance) cannot be rotated<br>"
 				+ "Connect all pipes, matching end-pipe colors<br>"
+				+ "Right-click for a hint, which turns one pipe into place<br>"
 				+ "Once a level is complete, click to move on</html>");
 		infoMessage.setBounds(50, 50, 300, 250);
 		infoMessage.setVisible(true);
@@ -81,8 +87,9 @@ public class PipesPanel extends JPanel {
 		if (curLevel == levels.length - 1) winMessage.setVisible(true);
 		// otherwise, move to next level
 		else {
-			// increment level
+			// increment level, which needs a new Solver for hints
 			++curLevel;
+			solver = null;
 			// keep re-generating grid until it isn't already done
 			do {grid = new Grid(levels[curLevel]);}
 			while (grid.isComplete());
@@ -92,6 +99,23 @@ public class PipesPanel extends JPanel {
 		}
 	}
 	
+	/**
+	 * Turns one Tile which doesn't match the solution into place
+	 */
+	private void hint() {
+		try {
+			// only solve the Level once a hint is asked for
+			if (solver == null) solver = new Solver(levels[curLevel]);
+			int[] hint = solver.hint(grid);
+			if (hint != null) for (int turn = 0; turn < hint[2]; ++turn) grid.rotateTile(hint[0], hint[1]);
+		}
+		// if the Level can't be solved, there is no hint to give
+		catch (IllegalArgumentException | IllegalStateException e) {
+			System.out.println("No hint for level " + (curLevel + 1));
+			e.printStackTrace();
+		}
+	}
+	
 	public void paintComponent(Graphics window) {
 		// draw a slightly darker background
 		window.setColor(Tile.BACKGROUND.darker());
@@ -107,8 +131,10 @@ public class PipesPanel extends JPanel {
 	
 	private class MyMouseListener implements MouseListener {
 		public void mouseClicked(MouseEvent e) {
-			// if currently playing, rotate the clicked Tile
-			if (active) grid.rotateTile(e.getY() / Tile.SIZE, e.getX() / Tile.SIZE);
+			// if currently playing, a right-click gives a hint
+			if (active && SwingUtilities.isRightMouseButton(e)) hint();
+			// and any other click rotates the clicked Tile
+			else if (active) grid.rotateTile(e.getY() / Tile.SIZE, e.getX() / Tile.SIZE);
 			// or if not playing
 			else {
 				// move to next level, currently playing
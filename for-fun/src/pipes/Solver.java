@@ -0,0 +1,523 @@
+package pipes;
+
+// for clearing the networks found
+import java.util.Arrays;
+
+/**
+ * Solves a Level of Pipes by finding an orientation for every Tile. Each MiddleTile starts
+ * with a domain of the orientations it could be in (a 4-bit mask, one bit per quarter turn,
+ * without turns that look the same), which are narrowed down by
+ * <ul>
+ * 	<li>edge agreement: the pipes on both sides of an edge are either both there or both not</li>
+ * 	<li>the border: no pipe can lead off the Grid</li>
+ * 	<li>color separation: pipe networks which are already connected to end-pipes of different
+ * 	colors can't be joined</li>
+ * 	<li>and no dry networks: a network closed off from every other Tile has to have an end-pipe</li>
+ * </ul>
+ * until nothing more can be ruled out, and then by depth-first search, trying each orientation
+ * of the Tile with the fewest left (and narrowing down again after every try).
+ * <br>
+ * Once solved, the solution can give hints for a Grid of the same Level.
+ * @author faith
+ */
+public class Solver {
+	/**
+	 * the # of rows in the Level
+	 */
+	private final int rows;
+	/**
+	 * the # of columns in the Level
+	 */
+	private final int cols;
+	/**
+	 * the cell on each side of each cell (at cell * 4 + side), or NONE off the edge
+	 */
+	private final int[] neighbors;
+	/**
+	 * the sides (as in Tile.getSides) of each cell's Tile after each # of quarter turns, at cell * 4 + turns
+	 */
+	private final int[] turned;
+	/**
+	 * the # of quarter turns each cell's Tile could still be in, one bit per # of turns
+	 */
+	private final byte[] domains;
+	/**
+	 * the color-set of the end-pipe in each cell, or NONE
+	 */
+	private final int[] colorOf;
+
+	/**
+	 * the cells whose domains were changed, so can be changed back when backtracking
+	 */
+	private final int[] trailCells;
+	/**
+	 * the domain each cell in trailCells had before it changed
+	 */
+	private final byte[] trailDomains;
+	/**
+	 * the # of changes in the trail
+	 */
+	private int trailSize;
+
+	/**
+	 * the cells whose domains have to be checked against their neighbors
+	 */
+	private final int[] queue;
+	/**
+	 * the # of cells in queue
+	 */
+	private int queueSize;
+	/**
+	 * whether each cell is in queue
+	 */
+	private final boolean[] queued;
+
+	// scratch space for finding pipe networks
+
+	/**
+	 * the network each cell was found to be in
+	 */
+	private final int[] networkOf;
+	/**
+	 * the color-set each network is connected to, or NONE
+	 */
+	private final int[] networkColor;
+	/**
+	 * the cells of the network being found
+	 */
+	private final int[] network;
+
+	/**
+	 * the # of search nodes visited so far
+	 */
+	private long nodes;
+	/**
+	 * the # of solutions to find before stopping the search
+	 */
+	private int limit;
+	/**
+	 * the # of solutions found so far
+	 */
+	private int found;
+	/**
+	 * whether the Level has been solved
+	 */
+	private boolean solved;
+	/**
+	 * the sides of each cell's Tile in the last solution found
+	 */
+	private final int[] solution;
+
+	/**
+	 * a missing neighbor, end-pipe, or color
+	 */
+	private static final int NONE = -1;
+
+	/**
+	 * Sets up a Solver for a Level
+	 * @param level the Level to solve
+	 * @throws IllegalArgumentException if a cell has no Tile, or an end-pipe is off the Grid
+	 */
+	public Solver(Level level) {
+		char[][] grid = level.getGrid();
+		int[][] ends = level.getEnds();
+		rows = grid.length;
+		cols = grid[0].length;
+		int cells = rows * cols;
+
+		// initialize all arrays to the right size
+		neighbors = new int[cells * 4];
+		turned = new int[cells * 4];
+		domains = new byte[cells];
+		colorOf = new int[cells];
+		// each cell's domain can only shrink 3 times before it has one orientation left
+		trailCells = new int[cells * 3];
+		trailDomains = new byte[cells * 3];
+		queue = new int[cells];
+		queued = new boolean[cells];
+		networkOf = new int[cells];
+		networkColor = new int[cells];
+		network = new int[cells];
+		solution = new int[cells];
+
+		// find each cell's neighbors
+		for (int cell = 0; cell < cells; ++cell) {
+			int row = cell / cols;
+			int col = cell % cols;
+			neighbors[cell * 4 + Tile.UP] = row > 0 ? cell - cols : NONE;
+			neighbors[cell * 4 + Tile.DOWN] = row < rows - 1 ? cell + cols : NONE;
+			neighbors[cell * 4 + Tile.LEFT] = col > 0 ? cell - 1 : NONE;
+			neighbors[cell * 4 + Tile.RIGHT] = col < cols - 1 ? cell + 1 : NONE;
+			colorOf[cell] = NONE;
+		}
+
+		// end-pipes can't turn, so have one orientation
+		for (int color = 0; color < ends.length; ++color) for (int i = 0; i < ends[color].length; i += 3) {
+			int row = ends[color][i];
+			int col = ends[color][i + 1];
+			if (row < 0 || row >= rows || col < 0 || col >= cols)
+				throw new IllegalArgumentException("End-pipe at (" + row + ", " + col + ") is off the grid");
+			int cell = row * cols + col;
+			colorOf[cell] = color;
+			turned[cell * 4] = 1 << ends[color][i + 2];
+			domains[cell] = 1;
+		}
+
+		// every other Tile could be in any orientation
+		for (int cell = 0; cell < cells; ++cell) if (colorOf[cell] == NONE) {
+			int sides = shapeOf(grid[cell / cols][cell % cols], cell);
+			for (int turns = 0; turns < 4; ++turns, sides = Tile.rotated(sides)) {
+				turned[cell * 4 + turns] = sides;
+				// only keep the first of the turns which look the same
+				boolean repeat = false;
+				for (int before = 0; before < turns; ++before) repeat |= turned[cell * 4 + before] == sides;
+				if (!repeat) domains[cell] |= 1 << turns;
+			}
+		}
+	}
+
+	/**
+	 * Gets the sides of a type of Tile, in one of its orientations
+	 * @param type the type-of-tile char (as in Level.getGrid)
+	 * @param cell the # of the cell it's in, for the error message
+	 * @return the sides mask
+	 * @throws IllegalArgumentException if the type isn't a Tile
+	 */
+	private int shapeOf(char type, int cell) {
+		if (type == 'B') return 1 << Tile.UP | 1 << Tile.RIGHT;
+		if (type == 'S') return 1 << Tile.UP | 1 << Tile.DOWN;
+		if (type == 'F') return 1 << Tile.UP | 1 << Tile.RIGHT | 1 << Tile.DOWN;
+		if (type == 'A') return Tile.ALL;
+		throw new IllegalArgumentException("Invalid tile '" + type + "' at (" + cell / cols + ", " + cell % cols + ")");
+	}
+
+	/**
+	 * Checks if a Level can be solved
+	 * @param level the Level to check
+	 * @return whether it has a solution
+	 */
+	public static boolean isSolvable(Level level) {
+		return new Solver(level).solve();
+	}
+
+	/**
+	 * Searches for a solution
+	 * @return whether the Level was solved
+	 */
+	public boolean solve() {
+		if (!solved && nodes == 0) {
+			limit = 1;
+			found = 0;
+			solved = start();
+		}
+		return solved;
+	}
+
+	/**
+	 * Counts the solutions, up to a limit (if there are that many, the last one found is kept)
+	 * <br>
+	 * countSolutions(2) tells whether a Level has exactly one solution.
+	 * @param limit the most solutions to count
+	 * @return the # of solutions, or limit if there are at least that many
+	 * @throws IllegalStateException if this Solver has already searched
+	 */
+	public int countSolutions(int limit) {
+		if (limit <= 0) throw new IllegalArgumentException("Can't count up to " + limit + " solutions");
+		if (nodes > 0) throw new IllegalStateException("Solver has already searched");
+		this.limit = limit;
+		found = 0;
+		start();
+		solved = found > 0;
+		return found;
+	}
+
+	/**
+	 * Gets the # of search nodes visited so far
+	 * @return the # of nodes
+	 */
+	public long getNodes() {return nodes;}
+
+	/**
+	 * Gets this.solved
+	 * @return whether the Level has been solved
+	 */
+	public boolean isSolved() {return solved;}
+
+	/**
+	 * Gets the solution
+	 * @return the sides (as in Tile.getSides) of the Tile in each row and column
+	 * @throws IllegalStateException if the Level has not been solved
+	 */
+	public int[][] getSolution() {
+		if (!solved) throw new IllegalStateException("Level has not been solved");
+		int[][] sides = new int[rows][cols];
+		for (int cell = 0; cell < solution.length; ++cell) sides[cell / cols][cell % cols] = solution[cell];
+		return sides;
+	}
+
+	/**
+	 * Finds a Tile on a Grid of this Level which isn't turned the way the solution has it
+	 * @param grid a Grid of the same Level
+	 * @return the row and column of the Tile, and how many times to rotate it, or null if every Tile is right
+	 * @throws IllegalStateException if the Level has no solution
+	 * @throws IllegalArgumentException if the Grid is a different size, or has a Tile no rotation
+	 * of which matches the solution (so it isn't a Grid of this Level)
+	 */
+	public int[] hint(Grid grid) {
+		if (grid.getRows() != rows || grid.getCols() != cols)
+			throw new IllegalArgumentException("Grid is " + grid.getRows() + "x" + grid.getCols()
+					+ ", not " + rows + "x" + cols);
+		if (!solve()) throw new IllegalStateException("Level has no solution");
+		for (int cell = 0; cell < solution.length; ++cell) {
+			int sides = grid.sidesAt(cell / cols, cell % cols);
+			if (sides == solution[cell]) continue;
+			// count the rotations to get it there (a whole turn brings it back where it started)
+			for (int turns = 1; turns < Tile.directions.length; ++turns) {
+				sides = Tile.rotated(sides);
+				if (sides == solution[cell]) return new int[] {cell / cols, cell % cols, turns};
+			}
+			throw new IllegalArgumentException("Tile at (" + cell / cols + ", " + cell % cols
+					+ ") can't be turned to match the solution");
+		}
+		return null;
+	}
+
+	/**
+	 * Narrows down every domain, then searches
+	 * @return whether enough solutions were found
+	 */
+	private boolean start() {
+		for (int cell = 0; cell < domains.length; ++cell) enqueue(cell);
+		return search();
+	}
+
+	/**
+	 * Searches from the current domains
+	 * @return whether enough solutions were found
+	 */
+	private boolean search() {
+		++nodes;
+		if (!settle()) return false;
+
+		// find the cell with the fewest orientations left (but more than one)
+		int best = NONE;
+		int bestCount = 5;
+		for (int cell = 0; cell < domains.length && bestCount > 2; ++cell) {
+			int count = Integer.bitCount(domains[cell]);
+			if (count > 1 && count < bestCount) {
+				best = cell;
+				bestCount = count;
+			}
+		}
+
+		// if every Tile has one orientation, they all fit, so this is a solution
+		if (best == NONE) {
+			for (int cell = 0; cell < solution.length; ++cell)
+				solution[cell] = turned[cell * 4 + Integer.numberOfTrailingZeros(domains[cell])];
+			return ++found >= limit;
+		}
+
+		// try each orientation of that cell
+		int mark = trailSize;
+		int domain = domains[best];
+		for (int turns = 0; turns < 4; ++turns) if ((domain & 1 << turns) != 0) {
+			setDomain(best, 1 << turns);
+			if (search()) return true;
+			undo(mark);
+		}
+		return false;
+	}
+
+	/**
+	 * Narrows down domains until nothing more can be ruled out
+	 * @return false if some cell has no orientation left
+	 */
+	private boolean settle() {
+		// agreeing with neighbors can join networks, and separating networks can rule out more
+		do {
+			if (!propagate() || !separate()) {
+				// the rest of the queue doesn't matter any more
+				while (queueSize > 0) queued[queue[--queueSize]] = false;
+				return false;
+			}
+		} while (queueSize > 0);
+		return true;
+	}
+
+	/**
+	 * Narrows down each queued cell's domain to orientations its neighbors (and the border) agree with
+	 * @return false if some cell has no orientation left
+	 */
+	private boolean propagate() {
+		while (queueSize > 0) {
+			int cell = queue[--queueSize];
+			queued[cell] = false;
+
+			// the sides which must (or can't) have pipes, to match the neighbors
+			int required = 0;
+			int forbidden = 0;
+			for (int dir : Tile.directions) {
+				int next = neighbors[cell * 4 + dir];
+				int facing = 1 << (dir + 2) % 4;
+				if (next == NONE || (may(next) & facing) == 0) forbidden |= 1 << dir;
+				else if ((must(next) & facing) != 0) required |= 1 << dir;
+			}
+			if (!restrict(cell, required, forbidden)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the networks of pipes which are certainly connected, then checks no network mixes
+	 * colors or is closed off without an end-pipe, and rules out joining networks of different colors
+	 * @return false if some network mixes colors, is closed off and dry, or a cell has no orientation left
+	 */
+	private boolean separate() {
+		Arrays.fill(networkOf, NONE);
+		int networks = 0;
+		for (int start = 0; start < networkOf.length; ++start) if (networkOf[start] == NONE) {
+			// flood the network through pipes which are certainly there
+			int color = NONE;
+			boolean closed = true;
+			int size = 0;
+			network[size++] = start;
+			networkOf[start] = networks;
+			for (int i = 0; i < size; ++i) {
+				int cell = network[i];
+				// it has to have one color at most
+				if (colorOf[cell] != NONE) {
+					if (color != NONE && color != colorOf[cell]) return false;
+					color = colorOf[cell];
+				}
+				// if some pipe might or might not be there, the network could still grow
+				if (must(cell) != may(cell)) closed = false;
+
+				int sides = must(cell);
+				for (int dir : Tile.directions) if ((sides & 1 << dir) != 0) {
+					int next = neighbors[cell * 4 + dir];
+					if (networkOf[next] == NONE) {
+						networkOf[next] = networks;
+						network[size++] = next;
+					}
+				}
+			}
+			// a closed network without an end-pipe stays dry
+			if (closed && color == NONE) return false;
+			networkColor[networks++] = color;
+		}
+
+		// a pipe which would join two colors can't be there (on either side)
+		for (int cell = 0; cell < networkOf.length; ++cell) {
+			int color = networkColor[networkOf[cell]];
+			int maybe = may(cell) & ~must(cell);
+			if (color == NONE || maybe == 0) continue;
+			int forbidden = 0;
+			for (int dir : Tile.directions) if ((maybe & 1 << dir) != 0) {
+				int other = networkColor[networkOf[neighbors[cell * 4 + dir]]];
+				if (other != NONE && other != color) forbidden |= 1 << dir;
+			}
+			if (!restrict(cell, 0, forbidden)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Rules out a cell's orientations which don't have some sides, or do have others
+	 * @param cell the # of the cell
+	 * @param required the sides which must have pipes
+	 * @param forbidden the sides which can't have pipes
+	 * @return false if the cell has no orientation left
+	 */
+	private boolean restrict(int cell, int required, int forbidden) {
+		int domain = domains[cell];
+		int kept = 0;
+		for (int turns = 0; turns < 4; ++turns) if ((domain & 1 << turns) != 0) {
+			int sides = turned[cell * 4 + turns];
+			if ((sides & required) == required && (sides & forbidden) == 0) kept |= 1 << turns;
+		}
+		if (kept == 0) return false;
+		if (kept != domain) setDomain(cell, kept);
+		return true;
+	}
+
+	/**
+	 * Changes a cell's domain, noting the old one, and queues its neighbors to be narrowed down
+	 * @param cell the # of the cell
+	 * @param domain the new domain
+	 */
+	private void setDomain(int cell, int domain) {
+		trailCells[trailSize] = cell;
+		trailDomains[trailSize++] = domains[cell];
+		domains[cell] = (byte) domain;
+		for (int dir : Tile.directions) {
+			int next = neighbors[cell * 4 + dir];
+			if (next != NONE) enqueue(next);
+		}
+	}
+
+	/**
+	 * Changes domains back, to how they were at a point in the trail
+	 * @param mark the trail size at that point
+	 */
+	private void undo(int mark) {
+		while (trailSize > mark) {
+			--trailSize;
+			domains[trailCells[trailSize]] = trailDomains[trailSize];
+		}
+	}
+
+	/**
+	 * Queues a cell to be narrowed down, if it isn't already
+	 * @param cell the # of the cell
+	 */
+	private void enqueue(int cell) {
+		if (queued[cell]) return;
+		queued[cell] = true;
+		queue[queueSize++] = cell;
+	}
+
+	/**
+	 * Finds the sides a cell has a pipe on in every orientation it could be in
+	 * @param cell the # of the cell
+	 * @return the sides mask
+	 */
+	private int must(int cell) {
+		int sides = Tile.ALL;
+		for (int turns = 0; turns < 4; ++turns)
+			if ((domains[cell] & 1 << turns) != 0) sides &= turned[cell * 4 + turns];
+		return sides;
+	}
+
+	/**
+	 * Finds the sides a cell has a pipe on in some orientation it could be in
+	 * @param cell the # of the cell
+	 * @return the sides mask
+	 */
+	private int may(int cell) {
+		int sides = 0;
+		for (int turns = 0; turns < 4; ++turns)
+			if ((domains[cell] & 1 << turns) != 0) sides |= turned[cell * 4 + turns];
+		return sides;
+	}
+
+	/**
+	 * Checks every Level in levels.dat, printing how many solutions each has
+	 * @param args not used
+	 */
+	public static void main(String[] args) {
+		Level[] levels = Level.readLevels();
+		for (int i = 0; i < levels.length; ++i) {
+			long start = System.nanoTime();
+			try {
+				Solver solver = new Solver(levels[i]);
+				int solutions = solver.countSolutions(2);
+				System.out.println("Level " + (i + 1) + ": " + (solutions == 0 ? "no solution"
+						: solutions == 1 ? "1 solution" : "more than 1 solution")
+						+ " (" + solver.getNodes() + " nodes, " + (System.nanoTime() - start) / 1_000_000 + "ms)");
+			}
+			catch (IllegalArgumentException e) {
+				System.out.println("Level " + (i + 1) + ": " + e.getMessage());
+			}
+		}
+	}
+}
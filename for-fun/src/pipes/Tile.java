@@ -18,9 +18,9 @@ public abstract class Tile {
 	 */
 	private final int col;
 	/**
-	 * whether each side of the Tile has an open pipe
+	 * the sides of the Tile with an open pipe, as a 4-bit mask (bit 1 << side for each side)
 	 */
-	private boolean[] sides;
+	private byte sides;
 	/**
 	 * the color of the water in this Tile's pipes
 	 */
@@ -60,14 +60,18 @@ public abstract class Tile {
 	 * all available side directions for easy iteration
 	 */
 	public static final int[] directions = {UP, RIGHT, DOWN, LEFT};
+	/**
+	 * the mask with a pipe out of every side
+	 */
+	public static final int ALL = 0xF;
 	
 	/**
 	 * Initializes a Tile with location and sides set-up
 	 * @param row the row of this Tile
 	 * @param col the column of this Tile
-	 * @param sides whether each side of the Tile has an open pipe
+	 * @param sides the mask of sides of the Tile with an open pipe
 	 */
-	public Tile(int row, int col, boolean[] sides) {
+	public Tile(int row, int col, int sides) {
 		this(row, col, sides, null);
 	}
 	
@@ -75,16 +79,16 @@ public abstract class Tile {
 	 * Initializes a Tile with location, sides set-up, and color
 	 * @param row the row of this Tile
 	 * @param col the column of this Tile
-	 * @param sides whether each side of the Tile has an open pipe
+	 * @param sides the mask of sides of the Tile with an open pipe
 	 * @param color the color of this Tile's water through the pipes
 	 */
-	public Tile(int row, int col, boolean[] sides, Color color) {
-		// make sure the sides are the right length
-		if (sides.length != directions.length) 
-			throw new IllegalArgumentException("Wrong number of sides");
+	public Tile(int row, int col, int sides, Color color) {
+		// make sure the mask only has bits for real sides
+		if ((sides & ~ALL) != 0) 
+			throw new IllegalArgumentException("Invalid sides");
 		this.row = row;
 		this.col = col;
-		this.sides = sides;
+		this.sides = (byte) sides;
 		this.color = color;
 	}
 	
@@ -112,23 +116,36 @@ public abstract class Tile {
 	 */
 	public void setColor(Color color) {this.color = color;}
 
+	/**
+	 * Gets this.sides
+	 * @return the mask of sides of the Tile with an open pipe
+	 */
+	public int getSides() {return sides;}
+	
 	/**
 	 * Sets this.sides
-	 * @param sides whether each side of the Tile has an open pipe
+	 * @param sides the mask of sides of the Tile with an open pipe
 	 */
-	protected void setSides(boolean[] sides) {
-		// make sure there is the right number of sides
-		if (sides.length != directions.length)
-			throw new IllegalArgumentException("Wrong number of sides");
-		this.sides = sides;
+	protected void setSides(int sides) {
+		// make sure the mask only has bits for real sides
+		if ((sides & ~ALL) != 0)
+			throw new IllegalArgumentException("Invalid sides");
+		this.sides = (byte) sides;
 	}
 	
 	/**
-	 * Checks this.sides[side]
+	 * Checks side's bit of this.sides
 	 * @param side the int value of the side to check
 	 * @return whether the Tile has a pipe exiting a side 
 	 */
-	public boolean hasSide(int side) {return sides[side];}
+	public boolean hasSide(int side) {return (sides & 1 << side) != 0;}
+	
+	/**
+	 * Rotates a mask of sides a quarter turn, the way Tiles rotate
+	 * @param sides the mask of sides
+	 * @return the mask with each side's pipe moved to the side before it in directions (UP's to LEFT)
+	 */
+	public static int rotated(int sides) {return (sides >> 1 | sides << 3) & ALL;}
 
 	/**
 	 * Gets a random side index
@@ -153,20 +170,20 @@ public abstract class Tile {
 		if (getCol() == other.getCol()) {
 			// if this Tile is one above, check for down & up pipes to connect
 			if (getRow() + 1 == other.getRow()) 
-				return hasSide(DOWN) && other.hasSide(UP);
+				return (sides & 1 << DOWN) != 0 && (other.sides & 1 << UP) != 0;
 			// similar for one below
 			if (getRow() - 1 == other.getRow())
-				return hasSide(UP) && other.hasSide(DOWN);
+				return (sides & 1 << UP) != 0 && (other.sides & 1 << DOWN) != 0;
 		}
 		
 		// if the columns match
 		if (getRow() == other.getRow()) {
 			// similar for one to the left
 			if (getCol() + 1 == other.getCol())
-				return hasSide(RIGHT) && other.hasSide(LEFT);
+				return (sides & 1 << RIGHT) != 0 && (other.sides & 1 << LEFT) != 0;
 			// similar for one to the right
 			if (getCol() - 1 == other.getCol())
-				return hasSide(LEFT) && other.hasSide(RIGHT);
+				return (sides & 1 << LEFT) != 0 && (other.sides & 1 << RIGHT) != 0;
 		}
 		
 		// if neither rows or columns match, these Tiles cannot connect
@@ -263,6 +280,19 @@ public abstract class Tile {
 		throw new IllegalArgumentException("Invalid side");
 	}
 	
+	/**
+	 * Converts a side index to a string, which stringToSide converts back
+	 * @param side the int value of the side
+	 * @return "up", "down", "left", or "right"
+	 */
+	public static String sideToString(int side) {
+		if (side == UP) return "up";
+		if (side == DOWN) return "down";
+		if (side == LEFT) return "left";
+		if (side == RIGHT) return "right";
+		throw new IllegalArgumentException("Invalid side");
+	}
+	
 	public String toString() {
 		String ret = "Tile at (" + row + ", " + col + ") pipes out";
 		for (int dir : directions) if (hasSide(dir)) ret += " " + dir;
@@ -51,6 +51,10 @@ public class Board {
 	 * all Tiles that have been changed, saved for undoing purposes
 	 */
 	private ArrayList<Tile> changed;
+	/**
+	 * the File to record moves made to (null if moves are not recorded)
+	 */
+	private File moves;
 	/**
 	 * a Writer to record moves made
 	 */
@@ -79,9 +83,17 @@ public class Board {
 	public static final File moveFile = new File("src/sudoku/saved-states/moves.txt");
 	
 	/**
-	 * Initializes a default Board with no numbers
+	 * Initializes a default Board with no numbers, recording moves to moveFile
 	 */
 	public Board() {
+		this(moveFile);
+	}
+	
+	/**
+	 * Initializes a default Board with no numbers
+	 * @param moves the File to record moves to, or null to not record moves
+	 */
+	public Board(File moves) {
 		// set up the matrices of Tiles
 		rows = new Tile[SIZE][SIZE];
 		groups = new Tile[SIZE][SIZE];
@@ -97,10 +109,22 @@ public class Board {
 		
 		// initialize the list of changed
 		changed = new ArrayList<Tile>();
-		try {moveWriter = new BufferedWriter(new FileWriter(moveFile));}
-		catch (IOException e) {
-			System.out.println("Cannot save moves");
-			moveWriter = null;
+		this.moves = moves;
+		openMoveWriter();
+	}
+	
+	/**
+	 * Points moveWriter at the start of the moves File, if moves are being recorded
+	 */
+	private void openMoveWriter() {
+		// no File means no recording
+		if (moves == null) moveWriter = null;
+		else {
+			try {moveWriter = new BufferedWriter(new FileWriter(moves));}
+			catch (IOException e) {
+				System.out.println("Cannot save moves");
+				moveWriter = null;
+			}
 		}
 	}
 
@@ -301,8 +325,10 @@ public class Board {
 	 * If any group (row, column, box) has n cells which share the same exact n possibilities,
 	 * then no other cells in that group can have any of those n possibilities EVEN THOUGH
 	 * it is not known which of the n cells has each possibility
+	 * <br>
+	 * Package-private so that BoardBenchmark can measure it
 	 */
-	private void removeInvisible() {
+	void removeInvisible() {
 		// map possibilities to Tiles
 		HashMap<HashableArray, ArrayList<Tile>> pos = new HashMap<HashableArray, ArrayList<Tile>>();
 		// no Tiles have been removed yet
@@ -407,9 +433,15 @@ public class Board {
 	/**
 	 * Loads a state from the save-file
 	 */
-	public void load() {
-		// point a Scanner at the save-file
-		try(Scanner reader = new Scanner(saveFile)) {
+	public void load() {load(saveFile);}
+	
+	/**
+	 * Loads a state from a file
+	 * @param file the file to load, in the same format save() writes
+	 */
+	public void load(File file) {
+		// point a Scanner at the file
+		try(Scanner reader = new Scanner(file)) {
 			// loop over all numbers to read
 			for (Tile[] row : rows) for (Tile tile : row) {
 				// grab the number for this spot
@@ -439,8 +471,7 @@ public class Board {
 			// remove "invisible" impossibles
 			removeInvisible();
 			// reset moves file
-			try {moveWriter = new BufferedWriter(new FileWriter(moveFile));}
-			catch (IOException e) {}
+			openMoveWriter();
 		}
 	}
 	
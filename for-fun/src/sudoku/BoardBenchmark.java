@@ -0,0 +1,204 @@
+package sudoku;
+
+// for the shared measurement loop
+import benchmark.Harness;
+
+// for writing puzzles where Board.load can read them
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Benchmarks the Sudoku Board engine over easy, medium, and hard puzzles, covering
+ * <ul>
+ * 	<li>setting a single number</li>
+ * 	<li>removing "invisible" impossibilities</li>
+ * 	<li>undoing every move</li>
+ * 	<li>loading a saved state</li>
+ * 	<li>and solving a whole puzzle, one number at a time</li>
+ * </ul>
+ * Run with optional arguments: # of warm-ups, # of iterations, iteration length (ms)
+ * @author faith
+ */
+public class BoardBenchmark {
+	/**
+	 * the names of the puzzles in PUZZLES
+	 */
+	private static final String[] NAMES = {"easy", "medium", "hard"};
+	/**
+	 * the puzzles to benchmark with, row by row, with 0 for an empty Tile
+	 */
+	private static final String[] PUZZLES = {
+			"003020600900305001001806400008102900700000008006708200002609500800203009005010300",
+			"000000907000420180000705026100904000050000040000507009920108000034059000507000000",
+			"800000000003600000070090200050007000000045700000100030001000068008500010090000400"
+	};
+
+	/**
+	 * the givens of the puzzle, row by row, with 0 for an empty Tile
+	 */
+	private final int[] puzzle;
+	/**
+	 * the solved puzzle
+	 */
+	private final int[] solution;
+	/**
+	 * the puzzle, saved in Board's save-file format
+	 */
+	private final File saved;
+
+	/**
+	 * Prepares a puzzle for benchmarking
+	 * @param digits the puzzle, row by row, with 0 for an empty Tile
+	 * @throws IOException if the puzzle cannot be written to a temporary file
+	 */
+	private BoardBenchmark(String digits) throws IOException {
+		// convert the digits to numbers
+		puzzle = new int[Board.SIZE * Board.SIZE];
+		for (int i = 0; i < puzzle.length; ++i) puzzle[i] = digits.charAt(i) - '0';
+
+		// find the solution
+		solution = puzzle.clone();
+		if (!solve(solution, 0)) throw new IllegalArgumentException("Unsolvable puzzle " + digits);
+
+		// write the puzzle out the same way Board.save() does
+		saved = File.createTempFile("sudoku", ".txt");
+		saved.deleteOnExit();
+		try (PrintWriter writer = new PrintWriter(saved)) {
+			for (int row = 0; row < Board.SIZE; ++row) {
+				for (int col = 0; col < Board.SIZE; ++col) {
+					int num = puzzle[row * Board.SIZE + col];
+					writer.print((num == 0 ? Tile.NO_NUM : num) + " ");
+				}
+				writer.println();
+			}
+		}
+	}
+
+	/**
+	 * Gets a fresh Board, which does not record moves, with the puzzle loaded
+	 * @return the loaded Board
+	 */
+	private Board loaded() {
+		Board board = new Board(null);
+		board.load(saved);
+		return board;
+	}
+
+	/**
+	 * Gets a fresh Board with the puzzle loaded, and the first empty Tile active
+	 * @return the Board, ready for setNum(int)
+	 */
+	private Board readyToSet() {
+		Board board = loaded();
+		int first = firstEmpty();
+		board.setActive(first / Board.SIZE, first % Board.SIZE);
+		return board;
+	}
+
+	/**
+	 * Gets a fresh Board with the whole solution played onto it
+	 * @return the solved Board
+	 */
+	private Board solved() {
+		Board board = loaded();
+		play(board);
+		return board;
+	}
+
+	/**
+	 * Plays the solution onto a Board, one number at a time, like a user would
+	 * @param board the Board to play on
+	 */
+	private void play(Board board) {
+		// loop over each empty Tile, setting its solved number
+		for (int i = 0; i < puzzle.length; ++i) if (puzzle[i] == 0) {
+			board.setActive(i / Board.SIZE, i % Board.SIZE);
+			board.setNum(solution[i]);
+		}
+	}
+
+	/**
+	 * Undoes every move played onto a solved Board
+	 * @param board the Board to undo
+	 */
+	private void undoAll(Board board) {
+		for (int num : puzzle) if (num == 0) board.undo();
+	}
+
+	/**
+	 * Finds the first empty Tile in the puzzle
+	 * @return the index of the first empty Tile
+	 */
+	private int firstEmpty() {
+		for (int i = 0; i < puzzle.length; ++i) if (puzzle[i] == 0) return i;
+		throw new IllegalStateException("Puzzle has no empty Tiles");
+	}
+
+	/**
+	 * Solves a puzzle by plain backtracking (only used to find the moves to benchmark)
+	 * @param grid the puzzle, row by row, with 0 for an empty Tile
+	 * @param from the index to start looking for empty Tiles at
+	 * @return whether the puzzle was solved
+	 */
+	private static boolean solve(int[] grid, int from) {
+		// find the next empty Tile
+		int cell = from;
+		while (cell < grid.length && grid[cell] != 0) ++cell;
+		// if there are none, the puzzle is solved
+		if (cell == grid.length) return true;
+
+		// try each number this Tile could be
+		for (int num = 1; num <= Board.SIZE; ++num) if (canPlace(grid, cell, num)) {
+			grid[cell] = num;
+			if (solve(grid, cell + 1)) return true;
+		}
+		// none worked, so undo and back-track
+		grid[cell] = 0;
+		return false;
+	}
+
+	/**
+	 * Checks if a number can go in a Tile
+	 * @param grid the puzzle, row by row, with 0 for an empty Tile
+	 * @param cell the index of the Tile
+	 * @param num the number to check
+	 * @return whether num is not already in the Tile's row, column, or group
+	 */
+	private static boolean canPlace(int[] grid, int cell, int num) {
+		int row = cell / Board.SIZE;
+		int col = cell % Board.SIZE;
+		// the upper-left corner of this Tile's group
+		int groupRow = row / Board.ROWS * Board.ROWS;
+		int groupCol = col / Board.COLS * Board.COLS;
+
+		for (int i = 0; i < Board.SIZE; ++i) {
+			if (grid[row * Board.SIZE + i] == num || grid[i * Board.SIZE + col] == num) return false;
+			if (grid[(groupRow + i / Board.COLS) * Board.SIZE + groupCol + i % Board.COLS] == num)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Runs every benchmark over every puzzle
+	 * @param args optionally the # of warm-ups, # of iterations, and iteration length (ms)
+	 * @throws IOException if the puzzles cannot be written to temporary files
+	 */
+	public static void main(String[] args) throws IOException {
+		Harness harness = Harness.fromArgs(args);
+		harness.printHeader();
+
+		for (int i = 0; i < PUZZLES.length; ++i) {
+			BoardBenchmark bench = new BoardBenchmark(PUZZLES[i]);
+			int first = bench.firstEmpty();
+
+			harness.run("Board.setNum", NAMES[i], bench::readyToSet,
+					board -> board.setNum(bench.solution[first]));
+			harness.run("Board.removeInvisible", NAMES[i], bench::loaded, Board::removeInvisible);
+			harness.run("Board.undo (all moves)", NAMES[i], bench::solved, bench::undoAll);
+			harness.run("Board.load", NAMES[i], () -> new Board(null), board -> board.load(bench.saved));
+			harness.run("Board solve (all moves)", NAMES[i], bench::loaded, bench::play);
+		}
+	}
+}